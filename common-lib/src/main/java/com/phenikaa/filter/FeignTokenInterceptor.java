@@ -1,6 +1,6 @@
 package com.phenikaa.filter;
 
-import com.phenikaa.utils.JwtUtil;
+import com.phenikaa.utils.InternalServiceTokenHolder;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 import lombok.RequiredArgsConstructor;
@@ -16,7 +16,7 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 @RequiredArgsConstructor
 public class FeignTokenInterceptor implements RequestInterceptor {
 
-    private final JwtUtil jwtUtil;
+    private final InternalServiceTokenHolder internalServiceTokenHolder;
 
     @Override
     public void apply(RequestTemplate template) {
@@ -45,9 +45,9 @@ public class FeignTokenInterceptor implements RequestInterceptor {
             }
         }
         
-        // Nếu vẫn không có token, tạo internal service token
+        // Nếu vẫn không có token, dùng internal service token đã ký sẵn
         if (token == null) {
-            token = "Bearer " + jwtUtil.generateInternalServiceToken();
+            token = internalServiceTokenHolder.getAuthorizationHeader();
             log.debug("Using internal service token for: {}", template.url());
         }
 
@@ -0,0 +1,117 @@
+package com.phenikaa.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Giữ internal service token đã ký sẵn (dạng header "Bearer ...") để dùng lại cho mọi Feign call
+ * không có request context. Token chỉ được ký lại khi sắp hết hạn, và chỉ một thread thực hiện việc đó.
+ * Số lần dùng lại token, số lần ký lại và số lần ký lỗi được đếm qua Micrometer
+ * (registry của actuator nếu service có, nếu không thì global registry).
+ */
+@Component
+@Slf4j
+public class InternalServiceTokenHolder {
+
+    private final JwtUtil jwtUtil;
+
+    // Tỉ lệ vòng đời token đã trôi qua thì bắt đầu ký lại (0.8 = làm mới khi còn 20% thời gian)
+    private final double refreshAheadRatio;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile CachedToken current;
+
+    private final Counter cacheHits;
+    private final Counter refreshes;
+    private final Counter refreshFailures;
+
+    public InternalServiceTokenHolder(JwtUtil jwtUtil,
+                                      @Value("${jwt.internal-token.refresh-ahead-ratio:0.8}") double refreshAheadRatio,
+                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jwtUtil = jwtUtil;
+        this.refreshAheadRatio = Math.min(Math.max(refreshAheadRatio, 0.1), 1.0);
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.cacheHits = Counter.builder("internal.service.token.cache.hits")
+                .description("Số lần dùng lại internal service token đã ký sẵn")
+                .register(registry);
+        this.refreshes = Counter.builder("internal.service.token.refreshes")
+                .description("Số lần ký lại internal service token")
+                .register(registry);
+        this.refreshFailures = Counter.builder("internal.service.token.refresh.failures")
+                .description("Số lần ký lại internal service token bị lỗi")
+                .register(registry);
+    }
+
+    /**
+     * Trả về header Authorization đã được cache, ký lại token khi cần.
+     */
+    public String getAuthorizationHeader() {
+        CachedToken token = current;
+        long now = System.currentTimeMillis();
+
+        if (token != null && now < token.refreshAtMillis()) {
+            cacheHits.increment();
+            return token.headerValue();
+        }
+
+        // Token vẫn còn hạn: chỉ một thread ký lại, các thread khác tiếp tục dùng token cũ
+        if (token != null && now < token.expiresAtMillis()) {
+            if (refreshLock.tryLock()) {
+                try {
+                    if (current == token) {
+                        return refresh(now).headerValue();
+                    }
+                } finally {
+                    refreshLock.unlock();
+                }
+            }
+            cacheHits.increment();
+            return token.headerValue();
+        }
+
+        // Chưa có token hoặc đã hết hạn: bắt buộc chờ ký lại
+        refreshLock.lock();
+        try {
+            CachedToken latest = current;
+            if (latest != null && now < latest.expiresAtMillis() && latest != token) {
+                cacheHits.increment();
+                return latest.headerValue();
+            }
+            return refresh(now).headerValue();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private CachedToken refresh(long now) {
+        long lifetime = jwtUtil.getAccessTokenExpiration();
+        String headerValue;
+        try {
+            headerValue = "Bearer " + jwtUtil.generateInternalServiceToken();
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            throw e;
+        }
+
+        CachedToken refreshed = new CachedToken(
+                headerValue,
+                now + (long) (lifetime * refreshAheadRatio),
+                now + lifetime);
+        current = refreshed;
+        refreshes.increment();
+
+        log.debug("Internal service token refreshed, next refresh at {}", refreshed.refreshAtMillis());
+        return refreshed;
+    }
+
+    private record CachedToken(String headerValue, long refreshAtMillis, long expiresAtMillis) {
+    }
+}
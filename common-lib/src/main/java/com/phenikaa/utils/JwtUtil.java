@@ -38,6 +38,10 @@ public class JwtUtil {
         return signingKey;
     }
 
+    public long getAccessTokenExpiration() {
+        return accessTokenExpiration;
+    }
+
     private String cleanToken(String token) {
         return token.replace("Bearer ", "").trim();
     }
@@ -0,0 +1,136 @@
+package com.phenikaa.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Automaton Aho–Corasick cho bộ từ khoá có trọng số theo nhóm.
+ * Dựng một lần, sau đó chấm điểm tất cả nhóm trong một lượt quét văn bản.
+ * Mỗi từ khoá chỉ được tính một lần dù xuất hiện nhiều lần (giống String.contains).
+ * Không thay đổi sau khi dựng nên dùng chung giữa các thread được.
+ */
+public final class KeywordAutomaton {
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failLinks = new ArrayList<>();
+    // node -> các từ khoá kết thúc tại node (kể cả qua fail link)
+    private final List<int[]> outputs = new ArrayList<>();
+
+    private final int groupCount;
+    private final int[] keywordGroup;
+    private final int[] keywordWeight;
+
+    /**
+     * @param weightedKeywords danh sách nhóm, mỗi nhóm là map từ khoá (đã chuẩn hoá) -> trọng số
+     */
+    public KeywordAutomaton(List<Map<String, Integer>> weightedKeywords) {
+        this.groupCount = weightedKeywords.size();
+
+        List<String> keywords = new ArrayList<>();
+        List<Integer> groups = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (int g = 0; g < weightedKeywords.size(); g++) {
+            for (Map.Entry<String, Integer> entry : weightedKeywords.get(g).entrySet()) {
+                keywords.add(entry.getKey());
+                groups.add(g);
+                weights.add(entry.getValue());
+            }
+        }
+        this.keywordGroup = groups.stream().mapToInt(Integer::intValue).toArray();
+        this.keywordWeight = weights.stream().mapToInt(Integer::intValue).toArray();
+
+        newNode();
+        List<List<Integer>> terminal = new ArrayList<>();
+        terminal.add(new ArrayList<>());
+        for (int k = 0; k < keywords.size(); k++) {
+            int node = 0;
+            for (char c : keywords.get(k).toCharArray()) {
+                Integer next = transitions.get(node).get(c);
+                if (next == null) {
+                    next = newNode();
+                    terminal.add(new ArrayList<>());
+                    transitions.get(node).put(c, next);
+                }
+                node = next;
+            }
+            terminal.get(node).add(k);
+        }
+        buildFailLinks(terminal);
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Tổng trọng số các từ khoá xuất hiện trong text, theo từng nhóm
+     */
+    public int[] score(String text) {
+        int[] scores = new int[groupCount];
+        boolean[] matched = new boolean[keywordGroup.length];
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            node = step(node, text.charAt(i));
+            for (int keyword : outputs.get(node)) {
+                if (!matched[keyword]) {
+                    matched[keyword] = true;
+                    scores[keywordGroup[keyword]] += keywordWeight[keyword];
+                }
+            }
+        }
+        return scores;
+    }
+
+    private int step(int node, char c) {
+        while (true) {
+            Integer next = transitions.get(node).get(c);
+            if (next != null) {
+                return next;
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = failLinks.get(node);
+        }
+    }
+
+    private int newNode() {
+        transitions.add(new HashMap<>());
+        failLinks.add(0);
+        outputs.add(new int[0]);
+        return transitions.size() - 1;
+    }
+
+    private void buildFailLinks(List<List<Integer>> terminal) {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputs.set(0, toArray(terminal.get(0)));
+        for (int child : transitions.get(0).values()) {
+            failLinks.set(child, 0);
+            outputs.set(child, toArray(terminal.get(child)));
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int fail = step(failLinks.get(node), edge.getKey());
+                failLinks.set(child, fail);
+
+                int[] own = toArray(terminal.get(child));
+                int[] inherited = outputs.get(fail);
+                int[] merged = new int[own.length + inherited.length];
+                System.arraycopy(own, 0, merged, 0, own.length);
+                System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+                outputs.set(child, merged);
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,116 @@
+package com.phenikaa.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Đoán chuyên ngành của đề tài từ tên đề tài theo bảng từ khoá có trọng số.
+ * Automaton được dựng một lần khi khởi tạo; mỗi lần phân loại chỉ quét tên đề tài một lượt.
+ */
+@Component
+public class MajorClassifier {
+
+    public static final String DEFAULT_MAJOR = "phần mềm ứng dụng";
+
+    private final List<String> majors;
+    private final KeywordAutomaton automaton;
+
+    public MajorClassifier() {
+        Map<String, Map<String, Integer>> weighted = buildWeightedKeywords();
+        this.majors = List.copyOf(weighted.keySet());
+        this.automaton = new KeywordAutomaton(new ArrayList<>(weighted.values()));
+    }
+
+    /**
+     * Chuyên ngành có điểm cao nhất; hoà điểm thì lấy chuyên ngành đứng trước trong bảng.
+     * Không khớp từ khoá nào thì trả về {@link #DEFAULT_MAJOR}.
+     */
+    public String classify(String title) {
+        String major = classifyOrNull(title);
+        return major != null ? major : DEFAULT_MAJOR;
+    }
+
+    /**
+     * Như {@link #classify(String)} nhưng trả về null khi không khớp từ khoá nào,
+     * để phân biệt "không xác định" với chuyên ngành mặc định
+     */
+    public String classifyOrNull(String title) {
+        int[] scores = automaton.score(VietnameseTextNormalizer.normalize(title));
+        String best = null;
+        int bestScore = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > bestScore) {
+                bestScore = scores[i];
+                best = majors.get(i);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Điểm của từng chuyên ngành, theo thứ tự trong bảng từ khoá
+     */
+    public Map<String, Integer> score(String title) {
+        int[] scores = automaton.score(VietnameseTextNormalizer.normalize(title));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            result.put(majors.get(i), scores[i]);
+        }
+        return result;
+    }
+
+    public List<String> getMajors() {
+        return majors;
+    }
+
+    private static Map<String, Map<String, Integer>> buildWeightedKeywords() {
+        Map<String, Map<String, Integer>> w = new LinkedHashMap<>();
+        w.put("phần mềm ứng dụng", mapOf(new String[][]{
+                {"web","2"},{"ung dung","3"},{"phan mem","3"},{"mobile","2"},
+                {"spring","1"},{"react","1"},{"node","1"},{"flutter","1"},{"android","1"},{"ios","1"},{"devops","1"},
+                {"quan ly","2"},{"he thong","1"},{"website","2"},{"ban hang","2"},{"thuong mai dien tu","3"},
+                {"quan ly benh vien","3"},{"quan ly phong kham","3"},{"dat lich","2"},{"gia su","1"},{"hoc truc tuyen","2"},
+                {"kanban","1"},{"quan ly du an","1"},{"quan ly kho","2"},{"chuoi cung ung","2"},{"dat ve","2"},
+                {"ngan hang","1"},{"quan ly nha hang","2"}
+        }));
+        w.put("khoa học dữ liệu", mapOf(new String[][]{
+                {"khoa hoc du lieu","3"},{"khai pha du lieu","2"},{"data","1"},{"etl","1"},{"pandas","1"},{"warehouse","1"},{"big data","2"}
+        }));
+        w.put("trí tuệ nhân tạo", mapOf(new String[][]{
+                {"tri tue nhan tao","4"},{"hoc may","3"},{"hoc sau","3"},{"ai","3"},{"ml","3"},{"deep learning","4"},
+                {"cnn","2"},{"rnn","2"},{"nlp","3"},{"yolo","2"},{"transformer","3"},{"bert","2"},{"gpt","2"},
+                {"predict","2"},{"classification","2"},{"regression","2"},{"khuyen nghi","3"},{"goi y","2"},
+                {"chatbot","2"},{"giong noi","3"},{"nhan dang","3"},{"cam xuc","2"},{"agent ai","3"},
+                {"recommender","2"}
+        }));
+        w.put("mạng máy tính", mapOf(new String[][]{
+                {"mang may tinh","3"},{"truyen thong du lieu","3"},{"tcp/ip","2"},{"routing","2"},{"switching","2"},{"lan","1"},{"wan","1"},
+                {"trung tam du lieu","3"},{"giam sat ha tang","3"}
+        }));
+        w.put("iot", mapOf(new String[][]{
+                {"iot","4"},{"cam bien","3"},{"sensor","3"},{"raspberry","2"},{"arduino","2"},{"esp32","2"},{"nhung","2"},{"edge","1"},
+                {"rfid","3"},{"bien so","2"}
+        }));
+        w.put("an toàn thông tin", mapOf(new String[][]{
+                {"an toan thong tin","4"},{"bao mat","3"},{"security","3"},{"ma hoa","2"},{"tan cong","2"},{"xss","2"},{"sql injection","2"},{"malware","2"}
+        }));
+        w.put("hệ thống thông tin", mapOf(new String[][]{
+                {"he thong thong tin","3"},{"he thong thong tin quan ly","4"},{"quan ly","2"},{"erp","2"},{"crm","2"},{"business","1"},{"quan tri","1"}
+        }));
+        w.put("cloud", mapOf(new String[][]{
+                {"dien toan dam may","3"},{"cloud","3"},{"aws","2"},{"gcp","2"},{"azure","2"},{"kubernetes","2"},{"docker","2"},{"terraform","1"},
+                {"microservice","3"},{"blockchain","3"},{"web3","3"},{"airdrop","2"}
+        }));
+        return w;
+    }
+
+    private static Map<String, Integer> mapOf(String[][] kv) {
+        Map<String, Integer> m = new LinkedHashMap<>();
+        for (String[] e : kv) m.put(e[0], Integer.parseInt(e[1]));
+        return m;
+    }
+}
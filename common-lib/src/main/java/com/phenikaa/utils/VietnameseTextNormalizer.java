@@ -0,0 +1,65 @@
+package com.phenikaa.utils;
+
+import java.text.Normalizer;
+
+/**
+ * Chuẩn hoá tiếng Việt về dạng ASCII thường để so khớp từ khoá:
+ * bỏ dấu (kể cả đ -> d), chữ thường, ký tự khác [a-z0-9] thành khoảng trắng, gộp khoảng trắng.
+ * Chạy một lượt qua chuỗi bằng bảng tra dựng sẵn thay cho Normalizer + nhiều lần replaceAll.
+ */
+public final class VietnameseTextNormalizer {
+
+    // Ký tự nằm ngoài bảng được coi là dấu phân cách
+    private static final int TABLE_SIZE = 0x2000;
+    private static final char SKIP = '\0';
+    private static final char SEPARATOR = ' ';
+    private static final char[] TABLE = buildTable();
+
+    private VietnameseTextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        char[] out = new char[text.length()];
+        int length = 0;
+        boolean pendingSeparator = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char mapped = c < TABLE_SIZE ? TABLE[c] : SEPARATOR;
+            if (mapped == SKIP) {
+                continue;
+            }
+            if (mapped == SEPARATOR) {
+                pendingSeparator = length > 0;
+                continue;
+            }
+            if (pendingSeparator) {
+                out[length++] = SEPARATOR;
+                pendingSeparator = false;
+            }
+            out[length++] = mapped;
+        }
+        return new String(out, 0, length);
+    }
+
+    private static char[] buildTable() {
+        char[] table = new char[TABLE_SIZE];
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            // Dấu kết hợp (văn bản đã ở dạng NFD) bị bỏ hẳn, không tạo khoảng trắng
+            if (c >= 0x0300 && c <= 0x036F) {
+                table[c] = SKIP;
+                continue;
+            }
+            String decomposed = Normalizer.normalize(String.valueOf((char) c), Normalizer.Form.NFD);
+            char base = Character.toLowerCase(decomposed.charAt(0));
+            if (base == 'đ') {
+                base = 'd';
+            }
+            table[c] = (base >= 'a' && base <= 'z') || (base >= '0' && base <= '9') ? base : SEPARATOR;
+        }
+        return table;
+    }
+}
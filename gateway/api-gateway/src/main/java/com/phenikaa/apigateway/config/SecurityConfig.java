@@ -2,6 +2,7 @@ package com.phenikaa.apigateway.config;
 
 import com.phenikaa.apigateway.security.JwtAuthenticationManager;
 import com.phenikaa.apigateway.security.ServerHttpBearerAuthenticationConverter;
+import com.phenikaa.apigateway.security.VerifiedTokenCache;
 import com.phenikaa.apigateway.utils.JwtUtil;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -83,8 +84,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtAuthenticationManager jwtAuthenticationManager(JwtUtil jwtUtil) {
-        return new JwtAuthenticationManager(jwtUtil);
+    public JwtAuthenticationManager jwtAuthenticationManager(JwtUtil jwtUtil, VerifiedTokenCache verifiedTokenCache) {
+        return new JwtAuthenticationManager(jwtUtil, verifiedTokenCache);
     }
 
     @Bean
@@ -1,15 +1,17 @@
 package com.phenikaa.apigateway.security;
 
+import com.phenikaa.apigateway.security.VerifiedTokenCache.VerifiedPrincipal;
 import com.phenikaa.apigateway.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,23 +21,40 @@ import java.util.stream.Collectors;
 public class JwtAuthenticationManager implements ReactiveAuthenticationManager {
 
     private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     @Override
     public Mono<Authentication> authenticate(Authentication authentication) {
         String token = authentication.getCredentials().toString();
 
-        if (!jwtUtil.validateToken(token)) {
-            return Mono.empty();
+        VerifiedPrincipal principal = verifiedTokenCache.get(token);
+        if (principal == null) {
+            principal = verify(token);
+            if (principal == null) {
+                return Mono.empty();
+            }
+            verifiedTokenCache.put(token, principal);
         }
 
-        String username = jwtUtil.getUsernameFromJWT(token);
-        List<String> roles = jwtUtil.getRoles(token);
+        Authentication auth = new UsernamePasswordAuthenticationToken(principal.username(), null, principal.authorities());
+        return Mono.just(auth);
+    }
 
-        List<SimpleGrantedAuthority> authorities = roles.stream()
+    // Parse token đúng một lần: verify chữ ký, lấy username, roles và exp từ cùng một Claims
+    private VerifiedPrincipal verify(String token) {
+        Claims claims = jwtUtil.validateAndExtractClaims(token);
+        if (claims == null) {
+            return null;
+        }
+
+        List<?> roles = claims.get("roles", List.class);
+        List<SimpleGrantedAuthority> authorities = roles == null ? List.of() : roles.stream()
+                .map(String::valueOf)
                 .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+                .collect(Collectors.toUnmodifiableList());
 
-        Authentication auth = new UsernamePasswordAuthenticationToken(username, null, authorities);
-        return Mono.just(auth);
+        Date expiration = claims.getExpiration();
+        long expiresAt = expiration != null ? expiration.getTime() : System.currentTimeMillis();
+        return new VerifiedPrincipal(claims.getSubject(), authorities, expiresAt);
     }
 }
@@ -0,0 +1,99 @@
+package com.phenikaa.apigateway.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cache các token đã verify chữ ký, key là SHA-256 của token, giữ principal đến khi token hết hạn (exp).
+// Hàng đợi ưu tiên theo exp cho phép bỏ entry hết hạn/sắp hết hạn sớm nhất trong O(log n) khi cache đầy.
+@Component
+public class VerifiedTokenCache {
+
+    private final Map<String, VerifiedPrincipal> entries = new ConcurrentHashMap<>();
+
+    // Thứ tự hết hạn của các entry; chỉ sửa khi giữ lock của chính queue
+    private final PriorityQueue<ExpiryEntry> expiryOrder =
+            new PriorityQueue<>(Comparator.comparingLong(ExpiryEntry::expiresAtMillis));
+
+    private final int maxSize;
+
+    public VerifiedTokenCache(@Value("${jwt.verified-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public VerifiedPrincipal get(String token) {
+        String key = digest(token);
+        VerifiedPrincipal principal = entries.get(key);
+        if (principal == null) {
+            return null;
+        }
+        if (principal.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, principal);
+            return null;
+        }
+        return principal;
+    }
+
+    public void put(String token, VerifiedPrincipal principal) {
+        if (maxSize <= 0) {
+            return;
+        }
+        String key = digest(token);
+        synchronized (expiryOrder) {
+            evict(System.currentTimeMillis());
+            if (entries.putIfAbsent(key, principal) == null) {
+                expiryOrder.add(new ExpiryEntry(key, principal));
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Bỏ các entry đã hết hạn ở đầu hàng đợi, nếu vẫn đầy thì bỏ entry hết hạn sớm nhất để giữ đúng giới hạn
+    private void evict(long now) {
+        ExpiryEntry head;
+        while ((head = expiryOrder.peek()) != null
+                && (head.principal().isExpired(now) || entries.size() >= maxSize)) {
+            expiryOrder.poll();
+            // get() có thể đã xóa entry hết hạn khỏi map, khi đó remove không làm gì
+            entries.remove(head.key(), head.principal());
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record ExpiryEntry(String key, VerifiedPrincipal principal) {
+        long expiresAtMillis() {
+            return principal.expiresAtMillis();
+        }
+    }
+
+    public record VerifiedPrincipal(String username,
+                                    List<SimpleGrantedAuthority> authorities,
+                                    long expiresAtMillis) {
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+}
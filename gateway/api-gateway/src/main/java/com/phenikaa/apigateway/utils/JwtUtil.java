@@ -1,6 +1,8 @@
 package com.phenikaa.apigateway.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
@@ -26,9 +28,15 @@ public class JwtUtil {
 
     private Key signingKey;
 
+    // JwtParser là immutable và thread-safe nên chỉ cần build một lần
+    private JwtParser jwtParser;
+
     @jakarta.annotation.PostConstruct
     public void init() {
         signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(jwtSecret));
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(getSigningKey())
+                .build();
     }
 
     private Key getSigningKey() {
@@ -40,13 +48,24 @@ public class JwtUtil {
     }
 
     public Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(cleanToken(token))
                 .getBody();
     }
 
+    /**
+     * Verify chữ ký và trả về claims trong một lần parse duy nhất.
+     * Trả về null nếu token không hợp lệ hoặc đã hết hạn.
+     */
+    public Claims validateAndExtractClaims(String token) {
+        try {
+            return extractClaims(token);
+        } catch (JwtException | IllegalArgumentException ex) {
+            log.error("Token invalid: {}", ex.getMessage());
+            return null;
+        }
+    }
+
     public String getUsernameFromJWT(String token) {
         return extractClaims(token).getSubject();
     }
@@ -56,13 +75,7 @@ public class JwtUtil {
     }
 
     public boolean validateToken(String token) {
-        try {
-            extractClaims(token);
-            return true;
-        } catch (Exception ex) {
-            log.error("Token invalid: {}", ex.getMessage());
-            return false;
-        }
+        return validateAndExtractClaims(token) != null;
     }
 
 }
\ No newline at end of file
@@ -4,36 +4,140 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.phenikaa.communicationservice.entity.ChatMessage;
 import com.phenikaa.communicationservice.entity.GroupMessage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chuyển tin nhắn chat giữa các instance qua Redis.
+ * Mỗi instance chỉ có một pattern subscription (chat_user_*, chat_group_*) trên listener container dùng chung,
+ * tin nhắn được chuyển tới các WebSocket trong instance qua bảng định tuyến userId -> sink.
+ * Tin nhắn nhóm được publish một lần lên kênh của nhóm kèm danh sách thành viên, mỗi instance tự phát cho thành viên đang kết nối.
+ */
 @Component
+@Slf4j
 public class ChatBroadcaster {
 
+    private static final String USER_TOPIC_PREFIX = "chat_user_";
+    private static final String GROUP_TOPIC_PREFIX = "chat_group_";
+    private static final Sinks.EmitFailureHandler EMIT_RETRY = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
     private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveRedisMessageListenerContainer container;
     private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final Map<String, UserRoute> routes = new ConcurrentHashMap<>();
+    private final Timer deliveryTimer;
+    private final int bufferSize;
 
-    public ChatBroadcaster(ReactiveStringRedisTemplate redisTemplate) {
+    public ChatBroadcaster(ReactiveStringRedisTemplate redisTemplate,
+                           ReactiveRedisMessageListenerContainer container,
+                           MeterRegistry meterRegistry,
+                           @Value("${chat.sink.buffer-size:256}") int bufferSize) {
         this.redisTemplate = redisTemplate;
+        this.container = container;
+        this.bufferSize = bufferSize;
+        this.deliveryTimer = Timer.builder("communication.chat.delivery")
+                .description("Thời gian từ lúc publish tới lúc chuyển vào WebSocket trong instance")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("communication.chat.routes", routes, Map::size)
+                .description("Số người dùng đang có kết nối chat trong instance")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribeAll() {
+        container.receive(PatternTopic.of(USER_TOPIC_PREFIX + "*"), PatternTopic.of(GROUP_TOPIC_PREFIX + "*"))
+                .flatMap(msg -> {
+                    try {
+                        dispatch(mapper.readValue(msg.getMessage(), ChatEnvelope.class));
+                    } catch (Exception e) {
+                        log.warn("Không xử lý được tin nhắn chat từ kênh {}: {}", msg.getChannel(), e.getMessage());
+                    }
+                    return Mono.empty();
+                })
+                .subscribe();
     }
 
     public Mono<Long> publish(ChatMessage msg) {
         String topic = userTopic(msg.getReceiverId());
-        return redisTemplate.convertAndSend(topic, serialize(msg));
+        return redisTemplate.convertAndSend(topic, envelope(List.of(msg.getReceiverId()), msg));
     }
 
+    /**
+     * Publish một lần lên kênh của nhóm; mỗi instance phát cho các thành viên đang kết nối với nó
+     */
     public Mono<Long> publishGroup(GroupMessage msg, java.util.List<String> memberIds) {
-        String payload = serialize(msg);
-        return Flux.fromIterable(memberIds)
-                .flatMap(memberId -> redisTemplate.convertAndSend(userTopic(memberId), payload))
-                .reduce(0L, Long::sum);
+        if (memberIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return redisTemplate.convertAndSend(groupTopic(msg.getGroupId()), envelope(memberIds, msg));
     }
 
     public Flux<String> subscribe(String userId) {
-        String topic = userTopic(userId);
-        return redisTemplate.listenToChannel(topic).map(m -> m.getMessage());
+        return Flux.defer(() -> {
+            UserRoute route = routes.compute(userId, (id, existing) -> {
+                UserRoute target = existing != null ? existing : new UserRoute();
+                target.subscribers++;
+                return target;
+            });
+            return route.sink.asFlux()
+                    .onBackpressureBuffer(bufferSize,
+                            dropped -> log.warn("Kết nối chat của người dùng {} chậm, bỏ một tin nhắn", userId),
+                            BufferOverflowStrategy.DROP_OLDEST)
+                    .doFinally(signal -> release(userId, route));
+        });
+    }
+
+    private void dispatch(ChatEnvelope envelope) {
+        if (envelope.recipients() == null || envelope.payload() == null) {
+            return;
+        }
+        boolean delivered = false;
+        for (String recipient : envelope.recipients()) {
+            UserRoute route = routes.get(recipient);
+            if (route != null) {
+                route.sink.emitNext(envelope.payload(), EMIT_RETRY);
+                delivered = true;
+            }
+        }
+        if (delivered) {
+            deliveryTimer.record(Math.max(0, System.currentTimeMillis() - envelope.publishedAt()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void release(String userId, UserRoute route) {
+        routes.computeIfPresent(userId, (id, existing) -> {
+            if (existing != route) {
+                return existing;
+            }
+            if (--existing.subscribers > 0) {
+                return existing;
+            }
+            existing.sink.tryEmitComplete();
+            return null;
+        });
+    }
+
+    private String envelope(List<String> recipients, Object message) {
+        return serialize(new ChatEnvelope(System.currentTimeMillis(), recipients, serialize(message)));
     }
 
     private String serialize(Object obj) {
@@ -45,6 +149,24 @@ public class ChatBroadcaster {
     }
 
     private String userTopic(String userId) {
-        return "chat_user_" + userId;
+        return USER_TOPIC_PREFIX + userId;
+    }
+
+    private String groupTopic(String groupId) {
+        return GROUP_TOPIC_PREFIX + groupId;
+    }
+
+    /**
+     * Payload trên Redis: payload là JSON tin nhắn gửi nguyên văn tới client, recipients là người nhận cần phát trong instance
+     */
+    private record ChatEnvelope(long publishedAt, List<String> recipients, String payload) {
+    }
+
+    /**
+     * Sink của một người dùng và số kết nối chat đang dùng nó (chỉ đổi trong compute của map)
+     */
+    private static final class UserRoute {
+        private final Sinks.Many<String> sink = Sinks.many().multicast().directBestEffort();
+        private int subscribers;
     }
 }
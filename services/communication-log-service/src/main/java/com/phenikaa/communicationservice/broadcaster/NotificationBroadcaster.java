@@ -1,28 +1,53 @@
 package com.phenikaa.communicationservice.broadcaster;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.phenikaa.communicationservice.entity.Notification;
 import com.phenikaa.communicationservice.util.JsonMapperProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Phát thông báo tới các WebSocket của từng người dùng trong instance này và qua Redis tới các instance khác.
+ * Sink của một người dùng chỉ tồn tại khi người đó còn ít nhất một kết nối: tạo ở lần subscribe đầu tiên,
+ * bỏ khi kết nối cuối cùng đóng. Mỗi kết nối có buffer giới hạn, kết nối chậm bị bỏ thông báo cũ nhất
+ * (client lấy lại qua cursor/REST) thay vì giữ bộ nhớ vô hạn.
+ */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class NotificationBroadcaster {
-    private final Map<Integer, Sinks.Many<Notification>> sinks = new ConcurrentHashMap<>();
+    private static final Sinks.EmitFailureHandler EMIT_RETRY = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    private final Map<Integer, UserSink> sinks = new ConcurrentHashMap<>();
     private final ReactiveStringRedisTemplate redis;
     private final ReactiveRedisMessageListenerContainer container;
     private final ObjectMapper mapper = JsonMapperProvider.getInstance().getMapper();
+    private final int bufferSize;
+
+    public NotificationBroadcaster(ReactiveStringRedisTemplate redis,
+                                   ReactiveRedisMessageListenerContainer container,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${notification.sink.buffer-size:256}") int bufferSize) {
+        this.redis = redis;
+        this.container = container;
+        this.bufferSize = bufferSize;
+        Gauge.builder("communication.notification.sinks", sinks, Map::size)
+                .description("Số người dùng đang có kết nối nhận thông báo trong instance")
+                .register(meterRegistry);
+    }
 
     @PostConstruct
     public void subscribeAll() {
@@ -32,29 +57,70 @@ public class NotificationBroadcaster {
                     try {
                         String channel = msg.getChannel();
                         int receiverId = Integer.parseInt(channel.substring("notifications:".length()));
-                        Notification noti = mapper.readValue(msg.getMessage(), Notification.class);
-                        return sinks
-                                .computeIfAbsent(receiverId, id -> Sinks.many().multicast().onBackpressureBuffer())
-                                .tryEmitNext(noti).isSuccess() ? Mono.empty() : Mono.empty();
+                        // Không có kết nối nào trong instance này thì không cần parse
+                        UserSink userSink = sinks.get(receiverId);
+                        if (userSink != null) {
+                            userSink.emit(mapper.readValue(msg.getMessage(), NotificationFrame.class));
+                        }
                     } catch (Exception e) {
-                        return Mono.empty();
+                        log.warn("Không xử lý được thông báo từ Redis: {}", e.getMessage());
                     }
+                    return Mono.empty();
                 })
                 .subscribe();
     }
 
-    public void publish(Integer receiverId, Notification notification) {
-        // 1) Đẩy ra local sinks (cho WS trong instance)
-        sinks.computeIfAbsent(receiverId, id -> Sinks.many().multicast().onBackpressureBuffer())
-                .tryEmitNext(notification);
+    public void publish(Integer receiverId, NotificationFrame frame) {
+        // 1) Đẩy ra local sink nếu người nhận đang kết nối tới instance này
+        UserSink userSink = sinks.get(receiverId);
+        if (userSink != null) {
+            userSink.emit(frame);
+        }
         // 2) Phát tán qua Redis cho các instance khác
         try {
-            String json = mapper.writeValueAsString(notification);
+            String json = mapper.writeValueAsString(frame);
             redis.convertAndSend("notifications:" + receiverId, json).subscribe();
         } catch (Exception ignored) {}
     }
 
-    public Flux<Notification> subscribe(Integer receiverId) {
-        return sinks.computeIfAbsent(receiverId, id -> Sinks.many().multicast().onBackpressureBuffer()).asFlux();
+    public Flux<NotificationFrame> subscribe(Integer receiverId) {
+        return Flux.defer(() -> {
+            UserSink userSink = sinks.compute(receiverId, (id, existing) -> {
+                UserSink target = existing != null ? existing : new UserSink();
+                target.subscribers++;
+                return target;
+            });
+            return userSink.sink.asFlux()
+                    .onBackpressureBuffer(bufferSize,
+                            dropped -> log.warn("Kết nối của người dùng {} chậm, bỏ frame {}", receiverId, dropped.getType()),
+                            BufferOverflowStrategy.DROP_OLDEST)
+                    .doFinally(signal -> release(receiverId, userSink));
+        });
+    }
+
+    private void release(Integer receiverId, UserSink userSink) {
+        sinks.computeIfPresent(receiverId, (id, existing) -> {
+            if (existing != userSink) {
+                return existing;
+            }
+            if (--existing.subscribers > 0) {
+                return existing;
+            }
+            existing.sink.tryEmitComplete();
+            return null;
+        });
+    }
+
+    /**
+     * Sink của một người dùng và số kết nối đang dùng nó (chỉ đổi trong compute của map)
+     */
+    private static final class UserSink {
+        // directBestEffort: mỗi kết nối tự giữ buffer riêng (onBackpressureBuffer), kết nối chậm không chặn kết nối khác
+        private final Sinks.Many<NotificationFrame> sink = Sinks.many().multicast().directBestEffort();
+        private int subscribers;
+
+        void emit(NotificationFrame frame) {
+            sink.emitNext(frame, EMIT_RETRY);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package com.phenikaa.communicationservice.broadcaster;
+
+import com.phenikaa.communicationservice.entity.Notification;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Một frame gửi tới WebSocket của người nhận: một lô thông báo đã gộp, hoặc sự kiện tóm tắt cho thao tác hàng loạt.
+ * Cũng là payload trao đổi giữa các instance qua Redis.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NotificationFrame {
+    public static final String TYPE_BATCH = "batch";
+    public static final String TYPE_READ_ALL = "read-all";
+
+    private String type;
+    private List<Notification> items; // TYPE_BATCH: theo thứ tự phát sinh
+    private Long count; // TYPE_READ_ALL: số thông báo vừa được đánh dấu đã đọc
+
+    public static NotificationFrame batch(List<Notification> items) {
+        return NotificationFrame.builder().type(TYPE_BATCH).items(items).build();
+    }
+
+    public static NotificationFrame readAll(long count) {
+        return NotificationFrame.builder().type(TYPE_READ_ALL).count(count).build();
+    }
+}
@@ -5,5 +5,6 @@ import reactor.core.publisher.Flux;
 
 public interface NotificationPublisher {
     void publish(Integer receiverId, Notification notification);
-    Flux<Notification> subscribe(Integer receiverId);
-}
\ No newline at end of file
+    void publishReadAll(Integer receiverId, long count);
+    Flux<NotificationFrame> subscribe(Integer receiverId);
+}
@@ -1,40 +1,105 @@
 package com.phenikaa.communicationservice.broadcaster;
 
 import com.phenikaa.communicationservice.entity.Notification;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Gộp các thông báo của cùng một người nhận phát sinh trong một cửa sổ ngắn thành một frame duy nhất,
+ * không bỏ thông báo nào: lô được phát khi hết cửa sổ hoặc khi đủ maxBatch phần tử.
+ * Nhiều cập nhật của cùng một thông báo trong một lô chỉ giữ trạng thái mới nhất.
+ */
 @Component
-@RequiredArgsConstructor
 public class NotificationPublisherProxy implements NotificationPublisher {
 
     private final NotificationBroadcaster delegate;
+    private final long windowMs;
+    private final int maxBatch;
+    private final Scheduler scheduler = Schedulers.parallel();
 
-    private final Map<Integer, Long> lastPushAt = new ConcurrentHashMap<>();
-    private static final long MIN_INTERVAL_MS = 50; // throttle nhẹ
+    // Lô đang chờ phát của từng người nhận; chỉ sửa trong compute/remove của map
+    private final Map<Integer, PendingBatch> pending = new ConcurrentHashMap<>();
+
+    public NotificationPublisherProxy(NotificationBroadcaster delegate,
+                                      @Value("${notification.coalesce.window-ms:50}") long windowMs,
+                                      @Value("${notification.coalesce.max-batch:100}") int maxBatch) {
+        this.delegate = delegate;
+        this.windowMs = windowMs;
+        this.maxBatch = Math.max(1, maxBatch);
+    }
 
     @Override
     public void publish(Integer receiverId, Notification notification) {
         if (receiverId == null || notification == null) return;
 
-        long now = Instant.now().toEpochMilli();
-        long last = lastPushAt.getOrDefault(receiverId, 0L);
-        if (now - last < MIN_INTERVAL_MS) return; // chặn spam burst
-
         // có thể thêm kiểm tra quyền ở đây (ví dụ: white-list receiverId)
-        delegate.publish(receiverId, notification);
-        lastPushAt.put(receiverId, now);
+        boolean[] created = {false};
+        boolean[] full = {false};
+        PendingBatch batch = pending.compute(receiverId, (id, existing) -> {
+            PendingBatch target = existing;
+            if (target == null) {
+                target = new PendingBatch();
+                created[0] = true;
+            }
+            target.add(notification);
+            full[0] = target.size() >= maxBatch;
+            return target;
+        });
+
+        if (full[0]) {
+            flush(receiverId, batch);
+        } else if (created[0]) {
+            scheduler.schedule(() -> flush(receiverId, batch), windowMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Thao tác hàng loạt (đánh dấu tất cả đã đọc): phát lô đang chờ rồi gửi một sự kiện tóm tắt thay vì N sự kiện
+     */
+    @Override
+    public void publishReadAll(Integer receiverId, long count) {
+        if (receiverId == null) return;
+        PendingBatch batch = pending.get(receiverId);
+        if (batch != null) {
+            flush(receiverId, batch);
+        }
+        delegate.publish(receiverId, NotificationFrame.readAll(count));
     }
 
     @Override
-    public Flux<Notification> subscribe(Integer receiverId) {
+    public Flux<NotificationFrame> subscribe(Integer receiverId) {
         // có thể thêm kiểm tra quyền/giới hạn subscriber
         return delegate.subscribe(receiverId);
     }
-}
\ No newline at end of file
+
+    // Chỉ lô vẫn còn trong map mới được phát, nên mỗi lô phát đúng một lần dù bị flush từ timer và từ maxBatch
+    private void flush(Integer receiverId, PendingBatch batch) {
+        if (pending.remove(receiverId, batch)) {
+            delegate.publish(receiverId, NotificationFrame.batch(new ArrayList<>(batch.items.values())));
+        }
+    }
+
+    private static final class PendingBatch {
+        // id -> trạng thái mới nhất, giữ thứ tự lần đầu xuất hiện
+        private final Map<Object, Notification> items = new LinkedHashMap<>();
+
+        void add(Notification notification) {
+            Object key = notification.getId() != null ? notification.getId() : new Object();
+            items.put(key, notification);
+        }
+
+        int size() {
+            return items.size();
+        }
+    }
+}
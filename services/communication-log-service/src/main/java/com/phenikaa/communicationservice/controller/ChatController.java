@@ -52,6 +52,14 @@ public class ChatController {
         return conversationService.getUserConversations(userId);
     }
 
+    @PutMapping("/conversations/{userId}/{partnerId}/read")
+    public Mono<Void> markConversationRead(
+            @PathVariable String userId,
+            @PathVariable String partnerId
+    ) {
+        return conversationService.markConversationRead(userId, partnerId);
+    }
+
     @GetMapping("/conversation/{userId1}/{userId2}")
     public Flux<ChatMessage> getConversationHistory(
             @PathVariable String userId1,
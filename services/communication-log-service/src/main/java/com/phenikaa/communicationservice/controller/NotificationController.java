@@ -1,9 +1,11 @@
 package com.phenikaa.communicationservice.controller;
 
 import com.phenikaa.communicationservice.dto.request.NotificationRequest;
+import com.phenikaa.communicationservice.dto.response.NotificationPageResponse;
 import com.phenikaa.communicationservice.entity.Notification;
 import com.phenikaa.communicationservice.repository.NotificationRepository;
 import com.phenikaa.communicationservice.service.decorator.EmailDecorator;
+import com.phenikaa.communicationservice.service.interfaces.NotificationHistoryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,10 +18,25 @@ public class NotificationController {
 
     private final EmailDecorator notificationService;
     private final NotificationRepository notificationRepository;
+    private final NotificationHistoryService notificationHistoryService;
 
-    public NotificationController(EmailDecorator notificationService, NotificationRepository notificationRepository) {
+    public NotificationController(EmailDecorator notificationService, NotificationRepository notificationRepository,
+                                  NotificationHistoryService notificationHistoryService) {
         this.notificationService = notificationService;
         this.notificationRepository = notificationRepository;
+        this.notificationHistoryService = notificationHistoryService;
+    }
+
+    /**
+     * Lịch sử thông báo theo trang, mới nhất trước; before là nextCursor của trang trước (hoặc cursor từ WebSocket)
+     */
+    @GetMapping("/{receiverId}/history")
+    public Mono<ResponseEntity<NotificationPageResponse>> getHistory(
+            @PathVariable int receiverId,
+            @RequestParam(required = false) String before,
+            @RequestParam(defaultValue = "20") int size) {
+        return notificationHistoryService.findPage(receiverId, before, size)
+                .map(ResponseEntity::ok);
     }
 
     @PostMapping("/send")
@@ -0,0 +1,19 @@
+package com.phenikaa.communicationservice.dto.response;
+
+import com.phenikaa.communicationservice.entity.Notification;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NotificationPageResponse {
+    private List<Notification> items; // mới nhất trước
+    private String nextCursor; // truyền vào before để lấy trang cũ hơn, null nếu hết
+    private boolean hasMore;
+}
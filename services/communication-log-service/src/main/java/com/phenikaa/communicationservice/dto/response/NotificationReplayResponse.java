@@ -0,0 +1,19 @@
+package com.phenikaa.communicationservice.dto.response;
+
+import com.phenikaa.communicationservice.entity.Notification;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NotificationReplayResponse {
+    private List<Notification> items; // cũ -> mới
+    private boolean truncated; // còn thông báo bị bỏ lỡ cũ hơn items[0] chưa được phát lại
+    private String before; // truyền vào before của REST history để lấy phần còn thiếu, null nếu không bị cắt
+}
@@ -0,0 +1,38 @@
+package com.phenikaa.communicationservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tóm tắt hội thoại 1-1, được cập nhật mỗi khi lưu tin nhắn; id là cặp userId đã sắp xếp ("a:b")
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Document(collection = "conversation_summaries")
+@CompoundIndex(name = "participants_last_message_idx", def = "{'participants': 1, 'lastMessageTime': -1}")
+public class ConversationSummary {
+    @Id
+    private String id;
+
+    private List<String> participants;
+    private String lastMessage;
+    private String lastSenderId;
+    private Instant lastMessageTime;
+    private Long messageCount;
+    private Map<String, Long> unreadCounts; // userId -> số tin chưa đọc của người đó
+
+    public static String pairKey(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0 ? userId1 + ":" + userId2 : userId2 + ":" + userId1;
+    }
+}
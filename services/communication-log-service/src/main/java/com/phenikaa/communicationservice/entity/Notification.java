@@ -1,6 +1,7 @@
 package com.phenikaa.communicationservice.entity;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import lombok.*;
 
@@ -11,6 +12,7 @@ import java.time.Instant;
 @NoArgsConstructor
 @Builder
 @Document(collection = "notification")
+@CompoundIndex(name = "receiver_created_idx", def = "{'receiverId': 1, 'createdAt': -1, '_id': -1}")
 public class Notification {
     @Id
     private String id;
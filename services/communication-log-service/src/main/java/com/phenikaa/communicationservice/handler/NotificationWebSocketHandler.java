@@ -1,63 +1,105 @@
 package com.phenikaa.communicationservice.handler;
 
+import com.phenikaa.communicationservice.broadcaster.NotificationFrame;
 import com.phenikaa.communicationservice.broadcaster.NotificationPublisher;
 //import com.phenikaa.communicationservice.broadcaster.NotificationBroadcaster;
 import com.phenikaa.communicationservice.entity.Notification;
-import com.phenikaa.communicationservice.repository.NotificationRepository;
+import com.phenikaa.communicationservice.service.interfaces.NotificationHistoryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
 import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Component
 @RequiredArgsConstructor
 public class NotificationWebSocketHandler implements WebSocketHandler {
-    private final NotificationRepository notificationRepository;
+    private final NotificationHistoryService notificationHistoryService;
     private final NotificationPublisher broadcaster;
 //    private final NotificationBroadcaster broadcaster;
 
+    /**
+     * Query: receiverId (bắt buộc), after (cursor của thông báo cuối client đã thấy, tuỳ chọn).
+     * Chỉ phát lại các thông báo mới hơn cursor (có giới hạn), thông báo cũ hơn lấy qua REST /notifications/{receiverId}/history.
+     * Khi phát lại bị cắt, gửi trước {"type":"replay-truncated","before":".."} để client lấy phần còn thiếu qua REST với before đó.
+     */
     @Override
     public Mono<Void> handle(WebSocketSession session) {
-        int receiverId = extractReceiverId(session);
+        MultiValueMap<String, String> params = UriComponentsBuilder
+                .fromUri(session.getHandshakeInfo().getUri())
+                .build()
+                .getQueryParams();
+        int receiverId = extractReceiverId(params.getFirst("receiverId"));
 
-        Flux<WebSocketMessage> oldNoti = notificationRepository
-                .findByReceiverId(receiverId)
-                .map(n -> formatNotification(session, n));
+        Flux<WebSocketMessage> oldNoti = notificationHistoryService
+                .replayAfter(receiverId, params.getFirst("after"))
+                .flatMapMany(replay -> {
+                    Flux<WebSocketMessage> items = Flux.fromIterable(replay.getItems())
+                            .map(n -> session.textMessage(formatNotification(n)));
+                    return replay.isTruncated()
+                            ? Flux.just(session.textMessage(formatTruncated(replay.getBefore()))).concatWith(items)
+                            : items;
+                });
 
         Flux<WebSocketMessage> newNoti = broadcaster
                 .subscribe(receiverId)
-                .map(n -> formatNotification(session, n));
+                .map(frame -> session.textMessage(formatFrame(frame, receiverId)));
 
         Flux<WebSocketMessage> output = oldNoti.concatWith(newNoti);
 
         return session.send(output);
     }
 
-    private int extractReceiverId(WebSocketSession session) {
-        String query = session.getHandshakeInfo().getUri().getQuery();
-        if (query != null && query.startsWith("receiverId=")) {
+    private int extractReceiverId(String value) {
+        if (value != null) {
             try {
-                return Integer.parseInt(query.split("=")[1]);
+                return Integer.parseInt(value);
             } catch (NumberFormatException ignored) {}
         }
         throw new IllegalArgumentException("receiverId không hợp lệ hoặc thiếu!");
     }
 
-    private WebSocketMessage formatNotification(WebSocketSession session, Notification n) {
+    /**
+     * Lô một thông báo giữ nguyên định dạng cũ; lô nhiều thông báo: {"type":"batch","items":[...]};
+     * đánh dấu tất cả đã đọc: {"type":"read-all","receiverId":..,"count":..}
+     */
+    private String formatFrame(NotificationFrame frame, int receiverId) {
+        if (NotificationFrame.TYPE_READ_ALL.equals(frame.getType())) {
+            long count = frame.getCount() != null ? frame.getCount() : 0L;
+            return String.format("{\"type\":\"read-all\",\"receiverId\":%d,\"count\":%d}", receiverId, count);
+        }
+        List<Notification> items = frame.getItems() != null ? frame.getItems() : List.of();
+        if (items.size() == 1) {
+            return formatNotification(items.get(0));
+        }
+        return items.stream()
+                .map(this::formatNotification)
+                .collect(Collectors.joining(",", "{\"type\":\"batch\",\"items\":[", "]}"));
+    }
+
+    private String formatTruncated(String before) {
+        return String.format("{\"type\":\"replay-truncated\",\"before\":\"%s\"}", before);
+    }
+
+    private String formatNotification(Notification n) {
         long createdAtMillis = n.getCreatedAt().toEpochMilli();
-        String payload = String.format(
-                "{\"id\":\"%s\",\"message\":\"%s\",\"senderId\":%d,\"receiverId\":%d,\"createdAt\":%d,\"read\":%b}",
+        return String.format(
+                "{\"id\":\"%s\",\"message\":\"%s\",\"senderId\":%d,\"receiverId\":%d,\"createdAt\":%d,\"read\":%b,\"cursor\":\"%s\"}",
                 n.getId(),
                 escapeJson(n.getMessage()),
                 n.getSenderId(),
                 n.getReceiverId(),
                 createdAtMillis,
-                n.isRead()
+                n.isRead(),
+                notificationHistoryService.cursorOf(n)
         );
-        return session.textMessage(payload);
     }
 
     private String escapeJson(String str) {
@@ -3,7 +3,9 @@ package com.phenikaa.communicationservice.service.implement;
 import com.phenikaa.communicationservice.client.UserServiceClient;
 import com.phenikaa.communicationservice.entity.ChatMessage;
 import com.phenikaa.communicationservice.service.interfaces.ChatService;
+import com.phenikaa.communicationservice.service.interfaces.ConversationService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
@@ -16,6 +18,7 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,14 +26,25 @@ import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class ChatServiceImpl implements ChatService {
 
     private final ReactiveMongoTemplate mongoTemplate;
     private final UserServiceClient userServiceClient;
+    private final ConversationService conversationService;
 
     public <T extends ChatMessage> Mono<T> saveMessage(T message) {
-        return mongoTemplate.save(message);
+        if (message.getTimestamp() == null) message.setTimestamp(Instant.now());
+        // Cập nhật summary của hội thoại ngay sau khi lưu để danh sách hội thoại không phải aggregate lại;
+        // tin nhắn đã lưu thì không để lỗi cập nhật summary làm hỏng kết quả gửi
+        return mongoTemplate.save(message)
+                .flatMap(saved -> conversationService.recordMessage(saved)
+                        .onErrorResume(e -> {
+                            log.error("Không cập nhật được conversation summary cho tin nhắn {}: {}", saved.getId(), e.getMessage());
+                            return Mono.empty();
+                        })
+                        .thenReturn(saved));
     }
     
     public Flux<ChatMessage> getChatHistory(String user1, String user2) {
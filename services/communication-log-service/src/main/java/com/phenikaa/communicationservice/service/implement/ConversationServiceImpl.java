@@ -2,32 +2,70 @@ package com.phenikaa.communicationservice.service.implement;
 
 import com.phenikaa.communicationservice.client.UserServiceClient;
 import com.phenikaa.communicationservice.dto.response.ConversationResponse;
+import com.phenikaa.communicationservice.entity.ChatMessage;
+import com.phenikaa.communicationservice.entity.ConversationSummary;
 import com.phenikaa.communicationservice.service.interfaces.ConversationService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.GroupOperation;
-import org.springframework.data.mongodb.core.aggregation.MatchOperation;
-import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
-import org.springframework.data.mongodb.core.aggregation.SortOperation;
-import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
+/**
+ * Danh sách hội thoại đọc từ collection conversation_summaries (một document cho mỗi cặp người dùng),
+ * được cập nhật nguyên tử mỗi khi lưu tin nhắn thay vì aggregate lại toàn bộ chat_messages ở mỗi lần gọi.
+ */
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class ConversationServiceImpl implements ConversationService {
 
+    private static final String PARTICIPANTS_INDEX = "participants_last_message_idx";
+    private static final String MIGRATIONS_COLLECTION = "migrations";
+    private static final String BACKFILL_MIGRATION_ID = "conversation_summaries_backfill";
+    private static final Duration BACKFILL_LEASE = Duration.ofMinutes(30);
+    private static final String CHAT_MESSAGES_COLLECTION = "chat_messages";
+    private static final String SUMMARY_COLLECTION = "conversation_summaries";
+
     private final ReactiveMongoTemplate mongoTemplate;
     private final UserServiceClient userServiceClient;
 
+    // auto-index-creation mặc định tắt nên tạo index khi khởi động; sau đó chạy migration dựng summary từ lịch sử (một lần)
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(ConversationSummary.class)
+                .ensureIndex(new Index()
+                        .on("participants", Sort.Direction.ASC)
+                        .on("lastMessageTime", Sort.Direction.DESC)
+                        .named(PARTICIPANTS_INDEX))
+                .then(runBackfillMigration())
+                .subscribe(
+                        ignored -> {},
+                        e -> log.error("Không chuẩn bị được conversation summary: {}", e.getMessage()),
+                        () -> log.info("Đã đảm bảo index {} cho conversation summary", PARTICIPANTS_INDEX));
+    }
+
     @Override
     public Flux<ConversationResponse> getUserConversations(String userId) {
         return getUserConversationsWithDetails(userId);
@@ -35,80 +73,176 @@ public class ConversationServiceImpl implements ConversationService {
 
     @Override
     public Flux<ConversationResponse> getUserConversationsWithDetails(String userId) {
-        // Tạo aggregation pipeline để lấy danh sách conversations của user
-        MatchOperation matchOperation = Aggregation.match(
-            new Criteria().orOperator(
-                where("senderId").is(userId),
-                where("receiverId").is(userId)
-            )
-        );
-
-        // Group theo conversation partner và lấy tin nhắn cuối cùng
-        GroupOperation groupOperation = Aggregation.group("senderId", "receiverId")
-            .last("content").as("lastMessage")
-            .last("timestamp").as("lastMessageTime")
-            .count().as("messageCount");
-
-        // Project để tạo conversation object
-        ProjectionOperation projectionOperation = Aggregation.project()
-            .andExpression("_id.senderId").as("senderId")
-            .andExpression("_id.receiverId").as("receiverId")
-            .and("lastMessage").as("lastMessage")
-            .and("lastMessageTime").as("lastMessageTime")
-            .and("messageCount").as("messageCount");
-
-        // Sort theo thời gian tin nhắn cuối cùng
-        SortOperation sortOperation = Aggregation.sort(Sort.by(Sort.Direction.DESC, "lastMessageTime"));
+        // Một lần đọc trên index (participants, lastMessageTime)
+        return mongoTemplate.find(
+                        query(where("participants").is(userId))
+                                .with(Sort.by(Sort.Direction.DESC, "lastMessageTime")),
+                        ConversationSummary.class)
+                .collectList()
+                .flatMapMany(summaries -> {
+                    if (summaries.isEmpty()) {
+                        return Flux.empty();
+                    }
+
+                    var partnerIds = summaries.stream()
+                            .map(summary -> partnerOf(summary, userId))
+                            .distinct()
+                            .toList();
+
+                    // Lấy thông tin user cho tất cả partners
+                    return userServiceClient.getUsersByIds(partnerIds.toArray(new String[0]))
+                            .collectMap(user -> (String) user.get("userId"))
+                            .flatMapMany(userMap ->
+                                    Flux.fromIterable(summaries)
+                                            .map(summary -> toResponse(summary, userId, userMap))
+                            );
+                });
+    }
+
+    /**
+     * Cập nhật summary của cặp người gửi/nhận: tin nhắn cuối, tổng số tin và số tin chưa đọc của người nhận
+     */
+    @Override
+    public Mono<Void> recordMessage(ChatMessage message) {
+        if (message.getSenderId() == null || message.getReceiverId() == null) {
+            return Mono.empty();
+        }
+        Instant time = message.getTimestamp() != null ? message.getTimestamp() : Instant.now();
+        Update update = new Update()
+                .setOnInsert("participants", participants(message.getSenderId(), message.getReceiverId()))
+                .set("lastMessage", message.getContent())
+                .set("lastSenderId", message.getSenderId())
+                .set("lastMessageTime", time)
+                .inc("messageCount", 1)
+                .inc(unreadField(message.getReceiverId()), 1);
+        return mongoTemplate.upsert(
+                        summaryQuery(message.getSenderId(), message.getReceiverId()),
+                        update,
+                        ConversationSummary.class)
+                .then();
+    }
+
+    /**
+     * Người dùng đã đọc hội thoại với partner: đưa số tin chưa đọc phía người dùng về 0
+     */
+    @Override
+    public Mono<Void> markConversationRead(String userId, String partnerId) {
+        return mongoTemplate.updateFirst(
+                        summaryQuery(userId, partnerId),
+                        new Update().set(unreadField(userId), 0L),
+                        ConversationSummary.class)
+                .then();
+    }
+
+    /**
+     * Migration dựng summary từ chat_messages cũ, chạy đúng một lần trên toàn cụm.
+     * Instance nào giành được marker trong collection migrations thì chạy; marker đã hoàn tất hoặc đang được
+     * instance khác giữ (chưa quá hạn lease) thì bỏ qua. Lỗi giữa chừng thì xoá marker để lần khởi động sau chạy lại.
+     */
+    private Mono<Void> runBackfillMigration() {
+        Instant now = Instant.now();
+        Query claimable = query(where("_id").is(BACKFILL_MIGRATION_ID)
+                .and("completedAt").exists(false)
+                .and("startedAt").lt(now.minus(BACKFILL_LEASE)));
+        return mongoTemplate.findAndModify(
+                        claimable,
+                        new Update().set("startedAt", now),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true),
+                        Document.class,
+                        MIGRATIONS_COLLECTION)
+                // Trùng _id: marker đã hoàn tất hoặc đang được instance khác giữ
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty())
+                .flatMap(claimed -> mergeHistoryIntoSummaries()
+                        .then(mongoTemplate.updateFirst(
+                                query(where("_id").is(BACKFILL_MIGRATION_ID)),
+                                new Update().set("completedAt", Instant.now()),
+                                MIGRATIONS_COLLECTION))
+                        .doOnSuccess(ignored -> log.info("Đã dựng conversation summary từ lịch sử chat"))
+                        .onErrorResume(e -> mongoTemplate.remove(query(where("_id").is(BACKFILL_MIGRATION_ID)), MIGRATIONS_COLLECTION)
+                                .then(Mono.error(e))))
+                .then();
+    }
+
+    /**
+     * Gom chat_messages theo cặp người dùng ngay trên server rồi $merge vào conversation_summaries, không kéo tin nhắn về bộ nhớ.
+     * Summary chưa có thì chèn mới với số tin từ lịch sử (số tin chưa đọc không xác định nên bắt đầu từ rỗng);
+     * summary đã có (do tin nhắn mới ghi trong lúc chạy) giữ nguyên các bộ đếm, chỉ nhận tin nhắn cuối nếu lịch sử mới hơn.
+     * Chạy lại nhiều lần cho cùng kết quả.
+     */
+    private Mono<Void> mergeHistoryIntoSummaries() {
+        Document senderFirst = new Document("$lte", List.of("$senderId", "$receiverId"));
+        Document pairKey = new Document("$cond", List.of(senderFirst,
+                new Document("$concat", List.of("$senderId", ":", "$receiverId")),
+                new Document("$concat", List.of("$receiverId", ":", "$senderId"))));
+        Document participants = new Document("$cond", List.of(senderFirst,
+                List.of("$senderId", "$receiverId"),
+                List.of("$receiverId", "$senderId")));
+        // $max trên document so theo từng field: lấy tin có timestamp lớn nhất mà không cần $sort
+        Document lastMessage = new Document("t", "$timestamp").append("c", "$content").append("s", "$senderId");
+
+        AggregationOperation group = context -> new Document("$group", new Document("_id", pairKey)
+                .append("participants", new Document("$first", participants))
+                .append("last", new Document("$max", lastMessage))
+                .append("messageCount", new Document("$sum", 1)));
+        AggregationOperation project = context -> new Document("$project", new Document("participants", 1)
+                .append("lastMessage", "$last.c")
+                .append("lastSenderId", "$last.s")
+                .append("lastMessageTime", "$last.t")
+                .append("messageCount", 1)
+                .append("unreadCounts", new Document("$literal", new Document())));
+        Document newerThanExisting = new Document("$gt", List.of("$$new.lastMessageTime", "$lastMessageTime"));
+        AggregationOperation merge = context -> new Document("$merge", new Document("into", SUMMARY_COLLECTION)
+                .append("on", "_id")
+                .append("whenMatched", List.of(new Document("$set", new Document()
+                        .append("lastMessage", new Document("$cond", List.of(newerThanExisting, "$$new.lastMessage", "$lastMessage")))
+                        .append("lastSenderId", new Document("$cond", List.of(newerThanExisting, "$$new.lastSenderId", "$lastSenderId")))
+                        .append("lastMessageTime", new Document("$max", List.of("$lastMessageTime", "$$new.lastMessageTime"))))))
+                .append("whenNotMatched", "insert"));
 
         Aggregation aggregation = Aggregation.newAggregation(
-            matchOperation,
-            groupOperation,
-            projectionOperation,
-            sortOperation
-        );
-
-        return mongoTemplate.aggregate(aggregation, "chat_messages", Map.class)
-            .collectList()
-            .flatMapMany(conversations -> {
-                // Lấy tất cả partner IDs
-                var partnerIds = conversations.stream()
-                    .map(conv -> {
-                        String senderId = (String) conv.get("senderId");
-                        String receiverId = (String) conv.get("receiverId");
-                        return senderId.equals(userId) ? receiverId : senderId;
-                    })
-                    .distinct()
-                    .toList();
-
-                if (partnerIds.isEmpty()) {
-                    return Flux.empty();
-                }
-
-                // Lấy thông tin user cho tất cả partners
-                return userServiceClient.getUsersByIds(partnerIds.toArray(new String[0]))
-                    .collectMap(user -> (String) user.get("userId"))
-                    .flatMapMany(userMap -> 
-                        Flux.fromIterable(conversations)
-                            .map(conv -> {
-                                String senderId = (String) conv.get("senderId");
-                                String receiverId = (String) conv.get("receiverId");
-                                String partnerId = senderId.equals(userId) ? receiverId : senderId;
-                                
-                                Map<String, Object> userInfo = userMap.getOrDefault(partnerId, Map.of());
-                                
-                                return ConversationResponse.builder()
-                                    .partnerId(partnerId)
-                                    .partnerName((String) userInfo.getOrDefault("fullName", "Unknown User"))
-                                    .partnerEmail((String) userInfo.getOrDefault("email", ""))
-                                    .partnerAvatar((String) userInfo.getOrDefault("avt", ""))
-                                    .lastMessage((String) conv.get("lastMessage"))
-                                    .lastMessageTime((Instant) conv.get("lastMessageTime"))
-                                    .messageCount(((Number) conv.get("messageCount")).longValue())
-                                    .unreadCount(0L)
-                                    .conversationId(partnerId)
-                                    .build();
-                            })
-                    );
-            });
+                        Aggregation.match(where("senderId").ne(null).and("receiverId").ne(null)),
+                        group,
+                        project,
+                        merge)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).skipOutput().build());
+        return mongoTemplate.aggregate(aggregation, CHAT_MESSAGES_COLLECTION, Document.class).then();
+    }
+
+    private ConversationResponse toResponse(ConversationSummary summary, String userId,
+                                            Map<String, Map<String, Object>> userMap) {
+        String partnerId = partnerOf(summary, userId);
+        Map<String, Object> userInfo = userMap.getOrDefault(partnerId, Map.of());
+        Long unread = summary.getUnreadCounts() != null ? summary.getUnreadCounts().get(userId) : null;
+
+        return ConversationResponse.builder()
+                .partnerId(partnerId)
+                .partnerName((String) userInfo.getOrDefault("fullName", "Unknown User"))
+                .partnerEmail((String) userInfo.getOrDefault("email", ""))
+                .partnerAvatar((String) userInfo.getOrDefault("avt", ""))
+                .lastMessage(summary.getLastMessage())
+                .lastMessageTime(summary.getLastMessageTime())
+                .messageCount(summary.getMessageCount() != null ? summary.getMessageCount() : 0L)
+                .unreadCount(unread != null ? unread : 0L)
+                .conversationId(partnerId)
+                .build();
+    }
+
+    private String partnerOf(ConversationSummary summary, String userId) {
+        return summary.getParticipants().stream()
+                .filter(id -> !id.equals(userId))
+                .findFirst()
+                .orElse(userId); // tự nhắn cho chính mình
+    }
+
+    private Query summaryQuery(String userId1, String userId2) {
+        return query(where("_id").is(ConversationSummary.pairKey(userId1, userId2)));
+    }
+
+    private List<String> participants(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0 ? List.of(userId1, userId2) : List.of(userId2, userId1);
+    }
+
+    private String unreadField(String userId) {
+        return "unreadCounts." + userId;
     }
 }
@@ -0,0 +1,165 @@
+package com.phenikaa.communicationservice.service.implement;
+
+import com.phenikaa.communicationservice.dto.response.NotificationPageResponse;
+import com.phenikaa.communicationservice.dto.response.NotificationReplayResponse;
+import com.phenikaa.communicationservice.entity.Notification;
+import com.phenikaa.communicationservice.service.interfaces.NotificationHistoryService;
+import com.mongodb.MongoCommandException;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Đọc lịch sử thông báo theo cursor trên index (receiverId, createdAt, _id).
+ * Cursor có dạng "{createdAt epoch millis}_{id}"; id dùng để phân định các thông báo cùng thời điểm.
+ */
+@Service
+@Slf4j
+public class NotificationHistoryServiceImpl implements NotificationHistoryService {
+
+    private static final String RECEIVER_CREATED_INDEX = "receiver_created_idx";
+    private static final int INDEX_KEY_SPECS_CONFLICT = 86;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final int replayLimit;
+    private final int maxPageSize;
+
+    public NotificationHistoryServiceImpl(ReactiveMongoTemplate mongoTemplate,
+                                          @Value("${notification.replay.max:50}") int replayLimit,
+                                          @Value("${notification.history.max-page-size:100}") int maxPageSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.replayLimit = replayLimit;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // auto-index-creation mặc định tắt nên tạo index khi khởi động
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        Index index = new Index()
+                .on("receiverId", Sort.Direction.ASC)
+                .on("createdAt", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named(RECEIVER_CREATED_INDEX);
+        // Bản cũ của index cùng tên chưa có _id: xoá rồi tạo lại theo khoá mới
+        mongoTemplate.indexOps(Notification.class)
+                .ensureIndex(index)
+                .onErrorResume(NotificationHistoryServiceImpl::isIndexKeySpecsConflict, e -> mongoTemplate.indexOps(Notification.class)
+                        .dropIndex(RECEIVER_CREATED_INDEX)
+                        .then(mongoTemplate.indexOps(Notification.class).ensureIndex(index)))
+                .subscribe(
+                        name -> log.info("Đã đảm bảo index {} cho notification", name),
+                        e -> log.error("Không tạo được index {} cho notification: {}", RECEIVER_CREATED_INDEX, e.getMessage()));
+    }
+
+    /**
+     * Các thông báo mới hơn cursor (tối đa replayLimit thông báo gần nhất), trả về theo thứ tự cũ -> mới.
+     * Không có cursor thì trả về replayLimit thông báo gần nhất.
+     * Nếu còn thông báo cũ hơn bị cắt bởi giới hạn thì đánh dấu truncated kèm cursor before để client lấy tiếp qua REST.
+     */
+    @Override
+    public Mono<NotificationReplayResponse> replayAfter(int receiverId, String cursor) {
+        Criteria criteria = Criteria.where("receiverId").is(receiverId);
+        Cursor parsed = Cursor.parse(cursor);
+        if (parsed != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("createdAt").gt(parsed.createdAt()),
+                    Criteria.where("createdAt").is(parsed.createdAt()).and("_id").gt(parsed.idValue()));
+        }
+        // Lấy dư một phần tử để biết có bị cắt hay không
+        Query query = new Query(criteria).with(newestFirst()).limit(replayLimit + 1);
+        return mongoTemplate.find(query, Notification.class)
+                .collectList()
+                .map(notifications -> {
+                    boolean truncated = notifications.size() > replayLimit;
+                    List<Notification> items = new ArrayList<>(truncated ? notifications.subList(0, replayLimit) : notifications);
+                    Collections.reverse(items);
+                    return NotificationReplayResponse.builder()
+                            .items(items)
+                            .truncated(truncated)
+                            .before(truncated && !items.isEmpty() ? cursorOf(items.get(0)) : null)
+                            .build();
+                });
+    }
+
+    /**
+     * Một trang thông báo cũ hơn cursor before (mới nhất trước); before null = trang đầu
+     */
+    @Override
+    public Mono<NotificationPageResponse> findPage(int receiverId, String before, int size) {
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        Criteria criteria = Criteria.where("receiverId").is(receiverId);
+        Cursor parsed = Cursor.parse(before);
+        if (parsed != null) {
+            criteria = criteria.orOperator(
+                    Criteria.where("createdAt").lt(parsed.createdAt()),
+                    Criteria.where("createdAt").is(parsed.createdAt()).and("_id").lt(parsed.idValue()));
+        }
+        // Lấy dư một phần tử để biết còn trang sau hay không
+        Query query = new Query(criteria).with(newestFirst()).limit(pageSize + 1);
+        return mongoTemplate.find(query, Notification.class)
+                .collectList()
+                .map(notifications -> {
+                    boolean hasMore = notifications.size() > pageSize;
+                    List<Notification> items = hasMore ? notifications.subList(0, pageSize) : notifications;
+                    return NotificationPageResponse.builder()
+                            .items(items)
+                            .nextCursor(hasMore ? cursorOf(items.get(items.size() - 1)) : null)
+                            .hasMore(hasMore)
+                            .build();
+                });
+    }
+
+    @Override
+    public String cursorOf(Notification notification) {
+        if (notification == null || notification.getCreatedAt() == null || notification.getId() == null) {
+            return null;
+        }
+        return notification.getCreatedAt().toEpochMilli() + "_" + notification.getId();
+    }
+
+    private static boolean isIndexKeySpecsConflict(Throwable e) {
+        return NestedExceptionUtils.getMostSpecificCause(e) instanceof MongoCommandException command
+                && command.getErrorCode() == INDEX_KEY_SPECS_CONFLICT;
+    }
+
+    private static Sort newestFirst() {
+        return Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id"));
+    }
+
+    private record Cursor(Instant createdAt, String id) {
+
+        // Cursor sai định dạng được bỏ qua (coi như không có cursor)
+        static Cursor parse(String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            int separator = value.indexOf('_');
+            try {
+                long millis = Long.parseLong(separator >= 0 ? value.substring(0, separator) : value);
+                String id = separator >= 0 ? value.substring(separator + 1) : "";
+                return new Cursor(Instant.ofEpochMilli(millis), id);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        Object idValue() {
+            return ObjectId.isValid(id) ? new ObjectId(id) : id;
+        }
+    }
+}
@@ -51,22 +51,15 @@ public class NotificationServiceImpl implements NotificationService {
                         .and("read").is(false)
         );
 
-        return mongoTemplate.find(query, Notification.class)
-                .collectList()
-                .flatMap(notifications -> {
-                    if (notifications.isEmpty()) {
-                        return Mono.just(0L);
+        // Một sự kiện tóm tắt thay vì phát lại từng thông báo đã cập nhật
+        Update update = new Update().set("read", true);
+        return mongoTemplate.updateMulti(query, update, Notification.class)
+                .map(result -> {
+                    long modified = result.getModifiedCount();
+                    if (modified > 0) {
+                        notificationBroadcaster.publishReadAll(receiverId, modified);
                     }
-
-                    Update update = new Update().set("read", true);
-                    return mongoTemplate.updateMulti(query, update, Notification.class)
-                            .map(result -> {
-                                notifications.forEach(noti -> {
-                                    noti.setRead(true); // update lại local
-                                    notificationBroadcaster.publish(receiverId, noti);
-                                });
-                                return (long) result.getModifiedCount();
-                            });
+                    return modified;
                 });
     }
 
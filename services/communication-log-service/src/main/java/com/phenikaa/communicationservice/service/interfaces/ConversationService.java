@@ -1,9 +1,13 @@
 package com.phenikaa.communicationservice.service.interfaces;
 
 import com.phenikaa.communicationservice.dto.response.ConversationResponse;
+import com.phenikaa.communicationservice.entity.ChatMessage;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface ConversationService {
     Flux<ConversationResponse> getUserConversations(String userId);
     Flux<ConversationResponse> getUserConversationsWithDetails(String userId);
+    Mono<Void> recordMessage(ChatMessage message);
+    Mono<Void> markConversationRead(String userId, String partnerId);
 }
@@ -0,0 +1,12 @@
+package com.phenikaa.communicationservice.service.interfaces;
+
+import com.phenikaa.communicationservice.dto.response.NotificationPageResponse;
+import com.phenikaa.communicationservice.dto.response.NotificationReplayResponse;
+import com.phenikaa.communicationservice.entity.Notification;
+import reactor.core.publisher.Mono;
+
+public interface NotificationHistoryService {
+    Mono<NotificationReplayResponse> replayAfter(int receiverId, String cursor);
+    Mono<NotificationPageResponse> findPage(int receiverId, String before, int size);
+    String cursorOf(Notification notification);
+}
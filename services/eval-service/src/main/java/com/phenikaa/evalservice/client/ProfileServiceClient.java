@@ -4,7 +4,10 @@ import com.phenikaa.filter.FeignTokenInterceptor;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
 import java.util.Map;
 
 @FeignClient(name = "api-gateway",
@@ -19,9 +22,21 @@ public interface ProfileServiceClient {
     @GetMapping("/api/profile-service/student/get-profile/{userId}")
     Map<String, Object> getStudentProfile(@PathVariable("userId") Integer userId);
 
+    /**
+     * Lấy thông tin profile của nhiều sinh viên trong một lần gọi
+     */
+    @PostMapping("/api/profile-service/student/get-profiles/batch")
+    List<Map<String, Object>> getStudentProfilesByIds(@RequestBody List<Integer> userIds);
+
     /**
      * Lấy thông tin profile giảng viên theo userId
      */
     @GetMapping("/api/profile-service/teacher/get-profile/{userId}")
     Map<String, Object> getTeacherProfile(@PathVariable("userId") Integer userId);
+
+    /**
+     * Lấy thông tin profile của nhiều giảng viên trong một lần gọi
+     */
+    @PostMapping("/api/profile-service/teacher/get-profiles/batch")
+    List<Map<String, Object>> getTeacherProfilesByIds(@RequestBody List<Integer> userIds);
 }
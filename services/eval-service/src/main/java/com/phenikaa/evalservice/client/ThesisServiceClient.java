@@ -4,10 +4,15 @@ import com.phenikaa.filter.FeignTokenInterceptor;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @FeignClient(name = "api-gateway",
         contextId = "thesisServiceClient"
@@ -15,6 +20,9 @@ import java.util.Map;
         ,configuration = FeignTokenInterceptor.class)
 public interface ThesisServiceClient {
 
+    // Kích thước trang khi duyệt toàn bộ sinh viên của đợt (endpoint mặc định chỉ trả 6)
+    int STUDENT_PAGE_SIZE = 200;
+
     /**
      * Lấy danh sách sinh viên đã đăng ký đề tài theo đợt đăng ký
      */
@@ -38,10 +46,44 @@ public interface ThesisServiceClient {
             @RequestParam(name = "size", defaultValue = "20") int size);
 
     /**
-     * Lấy danh sách sinh viên theo đợt đăng ký (alias cho /all/{periodId})
+     * Lấy toàn bộ sinh viên (đăng ký + đề xuất) của đợt bằng cách duyệt hết các trang của /all/{periodId}
+     */
+    default List<Map<String, Object>> getAllStudentsOfPeriod(Integer periodId) {
+        List<Map<String, Object>> students = new ArrayList<>();
+        int totalPages = 1;
+        for (int page = 0; page < totalPages; page++) {
+            Map<String, Object> result = getAllStudentsByPeriod(String.valueOf(periodId), page, STUDENT_PAGE_SIZE);
+            if (result == null) {
+                break;
+            }
+            if (result.get("content") instanceof List<?> content) {
+                for (Object item : content) {
+                    if (item instanceof Map<?, ?> student) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> row = (Map<String, Object>) student;
+                        students.add(row);
+                    }
+                }
+            }
+            if (result.get("totalPages") instanceof Number pages) {
+                totalPages = pages.intValue();
+            }
+        }
+        return students;
+    }
+
+    /**
+     * Danh sách topicId (không trùng, giữ thứ tự) của các sinh viên trong đợt
      */
-    @GetMapping("/api/thesis-service/student-period/{periodId}")
-    List<Map<String, Object>> getStudentsByPeriod(@PathVariable String periodId);
+    default List<Integer> getTopicIdsByPeriod(Integer periodId) {
+        Set<Integer> topicIds = new LinkedHashSet<>();
+        for (Map<String, Object> student : getAllStudentsOfPeriod(periodId)) {
+            if (student.get("topicId") instanceof Number topicId) {
+                topicIds.add(topicId.intValue());
+            }
+        }
+        return new ArrayList<>(topicIds);
+    }
 
     /**
      * Lấy thông tin đề tài theo ID
@@ -49,6 +91,12 @@ public interface ThesisServiceClient {
     @GetMapping("/api/thesis-service/teacher/topics/{topicId}")
     Map<String, Object> getTopicById(@PathVariable("topicId") Integer topicId);
 
+    /**
+     * Lấy thông tin nhiều đề tài theo danh sách ID trong một lần gọi
+     */
+    @PostMapping("/api/thesis-service/teacher/topics/batch")
+    List<Map<String, Object>> getTopicsByIds(@RequestBody List<Integer> topicIds);
+
     /**
      * Lấy danh sách đề tài đã được duyệt
      */
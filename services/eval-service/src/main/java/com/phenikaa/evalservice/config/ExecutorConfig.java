@@ -0,0 +1,85 @@
+package com.phenikaa.evalservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Các thread pool dùng cho việc chạy song song trong service, mỗi mục đích một bean.
+ * Là bean của Spring nên được tắt cùng context và hiện trong metrics executor của actuator.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Render PDF cho lượt xuất ZIP hàng loạt
+     */
+    @Bean(name = "pdfBulkExportExecutor")
+    public ThreadPoolTaskExecutor pdfBulkExportExecutor(@Value("${pdf.bulk-export.worker-threads:4}") int threads) {
+        return boundedExecutor("pdf-bulk-export-", threads, 100);
+    }
+
+    /**
+     * Lấy trước dữ liệu từ service khác cho PDF tổng hợp đánh giá
+     */
+    @Bean(name = "pdfPrefetchExecutor")
+    public ThreadPoolTaskExecutor pdfPrefetchExecutor(@Value("${pdf.prefetch.threads:8}") int threads) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("pdf-prefetch-", threads, 500);
+        executor.setTaskDecorator(ExecutorConfig::withRequestContext);
+        return executor;
+    }
+
+    /**
+     * Gửi thông báo của các lượt gán hàng loạt tuần tự trên một thread sau khi commit
+     */
+    @Bean(name = "assignmentNotificationExecutor")
+    public ThreadPoolTaskExecutor assignmentNotificationExecutor() {
+        return boundedExecutor("assignment-notifications-", 1, 1000);
+    }
+
+    /**
+     * Gọi song song sang thesis-service khi dựng lịch trình của sinh viên
+     */
+    @Bean(name = "studentScheduleFetchExecutor")
+    public ThreadPoolTaskExecutor studentScheduleFetchExecutor(@Value("${student-schedule.fetch.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = boundedExecutor("student-schedule-fetch-", threads, 500);
+        executor.setTaskDecorator(ExecutorConfig::withRequestContext);
+        return executor;
+    }
+
+    /**
+     * Chuyển request context của thread gửi task sang thread chạy task để Feign dùng lại token của người dùng.
+     * Khôi phục context cũ khi xong vì với CallerRunsPolicy task có thể chạy ngay trên thread gửi.
+     */
+    static Runnable withRequestContext(Runnable task) {
+        RequestAttributes submitterAttributes = RequestContextHolder.getRequestAttributes();
+        return () -> {
+            RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+            RequestContextHolder.setRequestAttributes(submitterAttributes);
+            try {
+                task.run();
+            } finally {
+                RequestContextHolder.setRequestAttributes(previous);
+            }
+        };
+    }
+
+    // Pool cố định số thread, hàng đợi giới hạn; đầy thì thread gọi tự chạy task thay vì ném lỗi
+    private static ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(Math.max(1, threads));
+        executor.setMaxPoolSize(Math.max(1, threads));
+        executor.setQueueCapacity(queueCapacity);
+        executor.setDaemon(true);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
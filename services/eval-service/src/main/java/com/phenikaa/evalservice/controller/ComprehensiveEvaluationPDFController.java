@@ -1,8 +1,10 @@
 package com.phenikaa.evalservice.controller;
 
 import com.phenikaa.evalservice.dto.request.ComprehensiveEvaluationPDFRequest;
+import com.phenikaa.evalservice.dto.response.BulkPDFExportProgressResponse;
 import com.phenikaa.evalservice.entity.ProjectEvaluation;
 import com.phenikaa.evalservice.repository.ProjectEvaluationRepository;
+import com.phenikaa.evalservice.service.ComprehensiveEvaluationBulkExportService;
 import com.phenikaa.evalservice.service.ComprehensiveEvaluationPDFService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +13,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -24,6 +27,7 @@ public class ComprehensiveEvaluationPDFController {
     
     private final ComprehensiveEvaluationPDFService pdfService;
     private final ProjectEvaluationRepository evaluationRepository;
+    private final ComprehensiveEvaluationBulkExportService bulkExportService;
     
     /**
      * Tạo PDF tổng hợp đánh giá với Q&A
@@ -80,6 +84,53 @@ public class ComprehensiveEvaluationPDFController {
         }
     }
     
+    /**
+     * Xuất ZIP PDF tổng hợp đánh giá cho tất cả đề tài của một buổi bảo vệ
+     */
+    @GetMapping("/reports/comprehensive-evaluation-pdf/session/{sessionId}/zip")
+    public ResponseEntity<StreamingResponseBody> exportSessionPDFs(@PathVariable Integer sessionId) {
+        log.info("Bulk exporting comprehensive evaluation PDFs for session: {}", sessionId);
+        return buildZipResponse("session-" + sessionId, bulkExportService.getTopicIdsBySession(sessionId));
+    }
+
+    /**
+     * Xuất ZIP PDF tổng hợp đánh giá cho tất cả đề tài của một đợt đăng ký
+     */
+    @GetMapping("/reports/comprehensive-evaluation-pdf/period/{periodId}/zip")
+    public ResponseEntity<StreamingResponseBody> exportPeriodPDFs(@PathVariable Integer periodId) {
+        log.info("Bulk exporting comprehensive evaluation PDFs for period: {}", periodId);
+        return buildZipResponse("period-" + periodId, bulkExportService.getTopicIdsByPeriod(periodId));
+    }
+
+    /**
+     * Theo dõi tiến độ và các đề tài lỗi của một lượt xuất ZIP (exportId lấy từ header X-Export-Id)
+     */
+    @GetMapping("/reports/comprehensive-evaluation-pdf/bulk/{exportId}/progress")
+    public ResponseEntity<BulkPDFExportProgressResponse> getBulkExportProgress(@PathVariable String exportId) {
+        BulkPDFExportProgressResponse progress = bulkExportService.getProgress(exportId);
+        return progress != null ? ResponseEntity.ok(progress) : ResponseEntity.notFound().build();
+    }
+
+    private ResponseEntity<StreamingResponseBody> buildZipResponse(String source, List<Integer> topicIds) {
+        if (topicIds.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        String exportId = bulkExportService.startExport(source, topicIds);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment",
+                "comprehensive_evaluations_" + source + "_" +
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".zip");
+        headers.add("X-Export-Id", exportId);
+        headers.add(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, "X-Export-Id");
+
+        StreamingResponseBody body = outputStream -> bulkExportService.writeZip(exportId, outputStream);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
+    }
+
     /**
      * Test endpoint để kiểm tra service hoạt động
      */
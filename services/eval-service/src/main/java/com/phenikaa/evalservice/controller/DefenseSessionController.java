@@ -5,14 +5,19 @@ import com.phenikaa.evalservice.dto.DefenseSessionExportDto;
 import com.phenikaa.evalservice.entity.DefenseSession;
 import com.phenikaa.evalservice.entity.StudentDefense;
 import com.phenikaa.evalservice.exception.DefenseSessionValidationException;
+import com.phenikaa.evalservice.service.DefenseSessionExportWriter;
 import com.phenikaa.evalservice.service.DefenseSessionService;
 import com.phenikaa.evalservice.service.StudentAssignmentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +31,7 @@ public class DefenseSessionController {
 
     private final DefenseSessionService defenseSessionService;
     private final StudentAssignmentService studentAssignmentService;
+    private final DefenseSessionExportWriter defenseSessionExportWriter;
 
     /**
      * Lấy tất cả buổi bảo vệ
@@ -181,17 +187,35 @@ public class DefenseSessionController {
     }
 
     /**
-     * Xuất dữ liệu tất cả buổi bảo vệ
+     * Xuất dữ liệu tất cả buổi bảo vệ dạng stream.
+     * Định dạng theo tham số format (json/ndjson/csv) hoặc header Accept; text/csv, application/vnd.ms-excel trả về CSV để mở bằng bảng tính.
      */
     @GetMapping("/export/all")
-    public ResponseEntity<List<DefenseSessionExportDto>> exportAllSessions() {
+    public ResponseEntity<StreamingResponseBody> exportAllSessions(
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        DefenseSessionExportWriter.ExportFormat exportFormat;
         try {
-            List<DefenseSessionExportDto> list = defenseSessionService.exportAllSessions();
-            return ResponseEntity.ok(list);
-        } catch (Exception e) {
-            log.error("Lỗi khi export tất cả buổi bảo vệ: ", e);
-            return ResponseEntity.internalServerError().build();
+            exportFormat = DefenseSessionExportWriter.ExportFormat.resolve(format, accept);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(exportFormat.getMediaType());
+        if (exportFormat != DefenseSessionExportWriter.ExportFormat.JSON) {
+            headers.setContentDispositionFormData("attachment", "defense_sessions_" +
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + "." + exportFormat.getExtension());
+        }
+        StreamingResponseBody body = outputStream -> {
+            try {
+                defenseSessionExportWriter.write(exportFormat, outputStream);
+            } catch (Exception e) {
+                log.error("Lỗi khi export tất cả buổi bảo vệ: ", e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok().headers(headers).body(body);
     }
 
     /**
@@ -4,6 +4,7 @@ import com.phenikaa.evalservice.dto.request.EvaluationRequest;
 import com.phenikaa.evalservice.dto.response.EvaluationResponse;
 import com.phenikaa.evalservice.dto.response.FinalScoreResponse;
 import com.phenikaa.evalservice.service.EvaluationService;
+import com.phenikaa.evalservice.service.FinalScoreService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +23,7 @@ import java.util.HashMap;
 public class EvaluationController {
     
     private final EvaluationService evaluationService;
+    private final FinalScoreService finalScoreService;
     
     /**
      * Chấm điểm cho sinh viên
@@ -100,6 +102,22 @@ public class EvaluationController {
         return ResponseEntity.ok(finalScore);
     }
     
+    /**
+     * Điểm tổng kết của tất cả sinh viên trong một buổi bảo vệ
+     */
+    @GetMapping("/final-scores/session/{sessionId}")
+    public ResponseEntity<List<FinalScoreResponse>> getFinalScoresBySession(@PathVariable Integer sessionId) {
+        return ResponseEntity.ok(finalScoreService.getFinalScoresBySession(sessionId));
+    }
+
+    /**
+     * Điểm tổng kết của tất cả đề tài trong một đợt đăng ký
+     */
+    @GetMapping("/final-scores/period/{periodId}")
+    public ResponseEntity<List<FinalScoreResponse>> getFinalScoresByPeriod(@PathVariable Integer periodId) {
+        return ResponseEntity.ok(finalScoreService.getFinalScoresByPeriod(periodId));
+    }
+
     /**
      * Cập nhật trạng thái defense committee từ INVITED sang CONFIRMED
      */
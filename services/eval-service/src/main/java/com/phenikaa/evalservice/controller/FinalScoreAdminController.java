@@ -0,0 +1,24 @@
+package com.phenikaa.evalservice.controller;
+
+import com.phenikaa.evalservice.dto.response.FinalScoreConsistencyResponse;
+import com.phenikaa.evalservice.service.FinalScoreService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/eval-service/admin/final-scores")
+@RequiredArgsConstructor
+public class FinalScoreAdminController {
+
+    private final FinalScoreService finalScoreService;
+
+    /**
+     * Đối chiếu bảng điểm tổng kết với các đánh giá gốc; repair=true để dựng lại các dòng sai lệch
+     */
+    @PostMapping("/consistency-check")
+    public ResponseEntity<FinalScoreConsistencyResponse> checkFinalScoreConsistency(
+            @RequestParam(value = "repair", defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(finalScoreService.checkConsistency(repair));
+    }
+}
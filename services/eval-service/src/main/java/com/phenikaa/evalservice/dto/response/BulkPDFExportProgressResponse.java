@@ -0,0 +1,26 @@
+package com.phenikaa.evalservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPDFExportProgressResponse {
+
+    private String exportId;
+    private String source; // Ví dụ: "session-12", "period-3"
+    private int totalTopics;
+    private int completedTopics;
+    private int failedTopics;
+    private boolean finished;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // topicId -> lý do lỗi
+    private Map<Integer, String> failures;
+}
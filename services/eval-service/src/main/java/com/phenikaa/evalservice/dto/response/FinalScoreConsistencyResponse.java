@@ -0,0 +1,28 @@
+package com.phenikaa.evalservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FinalScoreConsistencyResponse {
+
+    private int checkedTopics;
+
+    // Đề tài có điểm lưu sẵn khác với điểm tính lại từ đánh giá
+    private List<Integer> mismatchedTopicIds;
+
+    // Đề tài có đánh giá nhưng chưa có điểm lưu sẵn
+    private List<Integer> missingTopicIds;
+
+    // Điểm lưu sẵn không còn đánh giá nào tương ứng
+    private List<Integer> orphanTopicIds;
+
+    private boolean repaired;
+}
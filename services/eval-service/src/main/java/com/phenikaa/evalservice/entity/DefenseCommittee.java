@@ -6,7 +6,9 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "defense_committee", schema = "HieuDT")
+@Table(name = "defense_committee", schema = "HieuDT", indexes = {
+        @Index(name = "ix_defense_committee_lecturer", columnList = "lecturer_id")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -8,7 +8,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "defense_session", schema = "HieuDT")
+@Table(name = "defense_session", schema = "HieuDT", indexes = {
+        @Index(name = "ix_defense_session_location_time", columnList = "location, start_time, end_time"),
+        @Index(name = "ix_defense_session_time", columnList = "start_time, end_time")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
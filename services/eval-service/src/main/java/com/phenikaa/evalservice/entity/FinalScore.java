@@ -0,0 +1,54 @@
+package com.phenikaa.evalservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Điểm tổng kết của đề tài, được tính lại mỗi khi có đánh giá mới trong cùng transaction với ProjectEvaluation.
+ * Luôn phải bằng kết quả tính lại từ các ProjectEvaluation của đề tài (xem FinalScoreService.checkConsistency).
+ */
+@Entity
+@Table(name = "final_score", schema = "HieuDT")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FinalScore {
+
+    @Id
+    @Column(name = "topic_id")
+    private Integer topicId;
+
+    @Column(name = "student_id")
+    private Integer studentId;
+
+    @Column(name = "supervisor_score")
+    private Float supervisorScore; // Điểm GVHD
+
+    @Column(name = "reviewer_score")
+    private Float reviewerScore; // Điểm GVPB
+
+    @Column(name = "committee_score")
+    private Float committeeScore; // Điểm HĐ (chỉ có khi đủ 3 thành viên chấm)
+
+    @Column(name = "final_score")
+    private Float finalScore; // (GVHD x1 + GVPB x2 + HĐ x1) / 4
+
+    @Column(name = "status")
+    private String status; // COMPLETED, INCOMPLETE, PENDING
+
+    @Column(name = "evaluation_count")
+    private Integer evaluationCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
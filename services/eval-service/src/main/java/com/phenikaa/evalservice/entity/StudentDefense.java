@@ -6,7 +6,10 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "student_defense", schema = "HieuDT")
+@Table(name = "student_defense", schema = "HieuDT", indexes = {
+        @Index(name = "ix_student_defense_supervisor", columnList = "supervisor_id"),
+        @Index(name = "ix_student_defense_session", columnList = "session_id")
+})
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,11 @@
+package com.phenikaa.evalservice.repository;
+
+import com.phenikaa.evalservice.entity.DefenseCommittee;
+
+import java.util.List;
+
+public interface DefenseCommitteeBatchInsertRepository {
+
+    // Chèn nhiều bản ghi bằng JDBC batch (IDENTITY id khiến Hibernate không gom INSERT); id không được gán lại vào entity
+    void insertAllInBatch(List<DefenseCommittee> committees);
+}
@@ -0,0 +1,42 @@
+package com.phenikaa.evalservice.repository;
+
+import com.phenikaa.evalservice.entity.DefenseCommittee;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class DefenseCommitteeBatchInsertRepositoryImpl implements DefenseCommitteeBatchInsertRepository {
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT_SQL = "INSERT INTO HieuDT.defense_committee " +
+            "(session_id, lecturer_id, role, status, notes, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAllInBatch(List<DefenseCommittee> committees) {
+        if (committees.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, committees, BATCH_SIZE, (ps, committee) -> {
+            // Mặc định giống @PrePersist của entity
+            DefenseCommittee.CommitteeRole role = committee.getRole() != null ? committee.getRole() : DefenseCommittee.CommitteeRole.MEMBER;
+            DefenseCommittee.CommitteeStatus status = committee.getStatus() != null ? committee.getStatus() : DefenseCommittee.CommitteeStatus.CONFIRMED;
+            ps.setObject(1, committee.getDefenseSession() != null ? committee.getDefenseSession().getSessionId() : null, Types.INTEGER);
+            ps.setObject(2, committee.getLecturerId(), Types.INTEGER);
+            ps.setString(3, role.name());
+            ps.setString(4, status.name());
+            ps.setNString(5, committee.getNotes());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+    }
+}
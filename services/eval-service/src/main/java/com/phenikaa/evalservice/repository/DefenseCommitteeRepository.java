@@ -3,13 +3,17 @@ package com.phenikaa.evalservice.repository;
 import com.phenikaa.evalservice.entity.DefenseCommittee;
 import com.phenikaa.evalservice.entity.DefenseSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface DefenseCommitteeRepository extends JpaRepository<DefenseCommittee, Integer> {
+public interface DefenseCommitteeRepository extends JpaRepository<DefenseCommittee, Integer>, DefenseCommitteeBatchInsertRepository {
 
     // Tìm hội đồng theo buổi bảo vệ
     List<DefenseCommittee> findByDefenseSession_SessionId(Integer sessionId);
@@ -19,4 +23,22 @@ public interface DefenseCommitteeRepository extends JpaRepository<DefenseCommitt
 
     // Tìm hội đồng theo buổi và vai trò
     Optional<DefenseCommittee> findByDefenseSession_SessionIdAndRole(Integer sessionId, DefenseCommittee.CommitteeRole role);
+
+    // Các giảng viên (trong danh sách) đã có buổi trùng thời gian, loại trừ excludeSessionId nếu có
+    @Query("SELECT DISTINCT dc.lecturerId FROM DefenseCommittee dc JOIN dc.defenseSession ds " +
+           "WHERE dc.lecturerId IN :lecturerIds AND (:excludeSessionId IS NULL OR ds.sessionId <> :excludeSessionId) " +
+           "AND ds.startTime IS NOT NULL AND ds.endTime IS NOT NULL " +
+           "AND ((ds.startTime < :endTime AND ds.endTime > :startTime) OR ds.startTime = :startTime)")
+    List<Integer> findLecturerIdsWithConflict(@Param("lecturerIds") Collection<Integer> lecturerIds,
+                                              @Param("startTime") LocalDateTime startTime,
+                                              @Param("endTime") LocalDateTime endTime,
+                                              @Param("excludeSessionId") Integer excludeSessionId);
+
+    // Lịch của các giảng viên có thời gian giao với cửa sổ [from, to] (dùng cho kiểm tra hàng loạt)
+    @Query("SELECT dc FROM DefenseCommittee dc JOIN FETCH dc.defenseSession ds WHERE dc.lecturerId IN :lecturerIds " +
+           "AND ds.startTime IS NOT NULL AND ds.endTime IS NOT NULL " +
+           "AND ds.startTime <= :to AND ds.endTime >= :from")
+    List<DefenseCommittee> findByLecturerIdsWithin(@Param("lecturerIds") Collection<Integer> lecturerIds,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
 }
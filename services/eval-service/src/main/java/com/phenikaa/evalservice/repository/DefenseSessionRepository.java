@@ -1,15 +1,19 @@
 package com.phenikaa.evalservice.repository;
 
 import com.phenikaa.evalservice.entity.DefenseSession;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface DefenseSessionRepository extends JpaRepository<DefenseSession, Integer> {
@@ -38,4 +42,36 @@ public interface DefenseSessionRepository extends JpaRepository<DefenseSession,
     // Tìm buổi bảo vệ theo địa điểm
     List<DefenseSession> findByLocation(String location);
 
+    // Lấy tất cả buổi bảo vệ kèm hội đồng trong một truy vấn (dùng cho auto-assign)
+    @Query("SELECT DISTINCT ds FROM DefenseSession ds LEFT JOIN FETCH ds.defenseCommittees")
+    List<DefenseSession> findAllWithCommittees();
+
+    // Kiểm tra phòng đã có buổi trùng thời gian (giao nhau hoặc cùng thời điểm bắt đầu), loại trừ excludeSessionId nếu có
+    @Query("SELECT CASE WHEN COUNT(ds) > 0 THEN true ELSE false END FROM DefenseSession ds " +
+           "WHERE ds.location = :location AND (:excludeSessionId IS NULL OR ds.sessionId <> :excludeSessionId) " +
+           "AND ds.startTime IS NOT NULL AND ds.endTime IS NOT NULL " +
+           "AND ((ds.startTime < :endTime AND ds.endTime > :startTime) OR ds.startTime = :startTime)")
+    boolean existsLocationConflict(@Param("location") String location,
+                                   @Param("startTime") LocalDateTime startTime,
+                                   @Param("endTime") LocalDateTime endTime,
+                                   @Param("excludeSessionId") Integer excludeSessionId);
+
+    // Các buổi tại những phòng cho trước có thời gian giao với cửa sổ [from, to] (dùng cho kiểm tra hàng loạt)
+    @Query("SELECT ds FROM DefenseSession ds WHERE ds.location IN :locations " +
+           "AND ds.startTime IS NOT NULL AND ds.endTime IS NOT NULL " +
+           "AND ds.startTime <= :to AND ds.endTime >= :from")
+    List<DefenseSession> findByLocationsWithin(@Param("locations") Collection<String> locations,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to);
+
+    // Dữ liệu xuất: mỗi dòng là một buổi + một thành viên hội đồng (null nếu chưa có), số sinh viên đếm bằng SQL.
+    // Sắp theo sessionId để gom các dòng liên tiếp thành một buổi khi đọc dạng stream; sessionId null = tất cả
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "200"))
+    @Query("SELECT ds.sessionId, ds.sessionName, ds.defenseDate, ds.startTime, ds.location, ds.status, ds.maxStudents, " +
+           "(SELECT COUNT(sd) FROM StudentDefense sd WHERE sd.defenseSession.sessionId = ds.sessionId), " +
+           "dc.lecturerId, dc.role " +
+           "FROM DefenseSession ds LEFT JOIN ds.defenseCommittees dc " +
+           "WHERE (:sessionId IS NULL OR ds.sessionId = :sessionId) " +
+           "ORDER BY ds.sessionId, dc.committeeId")
+    Stream<Object[]> streamExportRows(@Param("sessionId") Integer sessionId);
 }
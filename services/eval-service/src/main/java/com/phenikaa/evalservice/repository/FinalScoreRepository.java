@@ -0,0 +1,36 @@
+package com.phenikaa.evalservice.repository;
+
+import com.phenikaa.evalservice.entity.FinalScore;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FinalScoreRepository extends JpaRepository<FinalScore, Integer> {
+
+    // Tạo dòng điểm tổng kết rỗng nếu chưa có trong một câu lệnh; UPDLOCK/HOLDLOCK giữ khoảng khóa
+    // để hai lần chấm đầu tiên cùng lúc của một đề tài không cùng insert
+    @Modifying
+    @Query(value = "INSERT INTO HieuDT.final_score (topic_id, status, evaluation_count, updated_at) " +
+            "SELECT :topicId, 'PENDING', 0, :now " +
+            "WHERE NOT EXISTS (SELECT 1 FROM HieuDT.final_score WITH (UPDLOCK, HOLDLOCK) WHERE topic_id = :topicId)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("topicId") Integer topicId, @Param("now") LocalDateTime now);
+
+    // Khoá dòng điểm tổng kết trước khi tính lại để các lần chấm đồng thời cùng đề tài chạy tuần tự
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT fs FROM FinalScore fs WHERE fs.topicId = :topicId")
+    Optional<FinalScore> findForUpdate(@Param("topicId") Integer topicId);
+
+    // Lấy điểm tổng kết của nhiều đề tài
+    List<FinalScore> findByTopicIdIn(Collection<Integer> topicIds);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -29,6 +30,12 @@ public interface ProjectEvaluationRepository extends JpaRepository<ProjectEvalua
     
     // Tìm tất cả đánh giá cụ thể (trong trường hợp có nhiều bản ghi) và sắp xếp mới nhất trước
     List<ProjectEvaluation> findAllByTopicIdAndEvaluatorIdAndEvaluationTypeOrderByEvaluatedAtDesc(Integer topicId, Integer evaluatorId, ProjectEvaluation.EvaluationType evaluationType);
+
+    // Tất cả đánh giá của một tập đề tài
+    List<ProjectEvaluation> findByTopicIdIn(Collection<Integer> topicIds);
+
+    // Tất cả đánh giá của giảng viên trên một tập đề tài, mới nhất trước
+    List<ProjectEvaluation> findByEvaluatorIdAndTopicIdInOrderByEvaluatedAtDesc(Integer evaluatorId, Collection<Integer> topicIds);
     
     // Lấy tất cả đánh giá của một topic
     @Query("SELECT pe FROM ProjectEvaluation pe WHERE pe.topicId = :topicId ORDER BY pe.evaluationType, pe.evaluatedAt")
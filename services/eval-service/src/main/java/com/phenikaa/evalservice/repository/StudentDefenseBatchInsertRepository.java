@@ -0,0 +1,11 @@
+package com.phenikaa.evalservice.repository;
+
+import com.phenikaa.evalservice.entity.StudentDefense;
+
+import java.util.List;
+
+public interface StudentDefenseBatchInsertRepository {
+
+    // Chèn nhiều bản ghi bằng JDBC batch (IDENTITY id khiến Hibernate không gom INSERT); id không được gán lại vào entity
+    void insertAllInBatch(List<StudentDefense> studentDefenses);
+}
@@ -0,0 +1,49 @@
+package com.phenikaa.evalservice.repository;
+
+import com.phenikaa.evalservice.entity.StudentDefense;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class StudentDefenseBatchInsertRepositoryImpl implements StudentDefenseBatchInsertRepository {
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final String INSERT_SQL = "INSERT INTO HieuDT.student_defense " +
+            "(session_id, student_id, topic_id, supervisor_id, student_name, student_major, topic_title, " +
+            "defense_order, defense_time, duration_minutes, status, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAllInBatch(List<StudentDefense> studentDefenses) {
+        if (studentDefenses.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, studentDefenses, BATCH_SIZE, (ps, sd) -> {
+            // Mặc định giống @PrePersist của entity
+            StudentDefense.DefenseStatus status = sd.getStatus() != null ? sd.getStatus() : StudentDefense.DefenseStatus.SCHEDULED;
+            Integer duration = sd.getDurationMinutes() != null ? sd.getDurationMinutes() : 30;
+            ps.setObject(1, sd.getDefenseSession() != null ? sd.getDefenseSession().getSessionId() : null, Types.INTEGER);
+            ps.setObject(2, sd.getStudentId(), Types.INTEGER);
+            ps.setObject(3, sd.getTopicId(), Types.INTEGER);
+            ps.setObject(4, sd.getSupervisorId(), Types.INTEGER);
+            ps.setNString(5, sd.getStudentName());
+            ps.setNString(6, sd.getStudentMajor());
+            ps.setNString(7, sd.getTopicTitle());
+            ps.setObject(8, sd.getDefenseOrder(), Types.INTEGER);
+            ps.setTimestamp(9, sd.getDefenseTime() != null ? Timestamp.valueOf(sd.getDefenseTime()) : null);
+            ps.setInt(10, duration);
+            ps.setString(11, status.name());
+            ps.setTimestamp(12, now);
+            ps.setTimestamp(13, now);
+        });
+    }
+}
@@ -6,15 +6,20 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface StudentDefenseRepository extends JpaRepository<StudentDefense, Integer> {
+public interface StudentDefenseRepository extends JpaRepository<StudentDefense, Integer>, StudentDefenseBatchInsertRepository {
 
     // Tìm sinh viên theo ID sinh viên
     List<StudentDefense> findByStudentId(Integer studentId);
 
+    // Lịch bảo vệ của sinh viên kèm buổi bảo vệ trong một truy vấn
+    @Query("SELECT sd FROM StudentDefense sd JOIN FETCH sd.defenseSession WHERE sd.studentId = :studentId")
+    List<StudentDefense> findByStudentIdWithSession(@Param("studentId") Integer studentId);
+
     // Tìm sinh viên theo đề tài
     Optional<StudentDefense> findByTopicId(Integer topicId);
 
@@ -36,8 +41,31 @@ public interface StudentDefenseRepository extends JpaRepository<StudentDefense,
 
     // Tìm danh sách sinh viên đã gán theo thứ tự bảo vệ
     List<StudentDefense> findByDefenseSession_SessionIdOrderByDefenseOrder(Integer sessionId);
+
+    // Đề tài của các sinh viên trong buổi bảo vệ theo thứ tự bảo vệ
+    @Query("SELECT sd.topicId FROM StudentDefense sd WHERE sd.defenseSession.sessionId = :sessionId " +
+            "AND sd.topicId IS NOT NULL ORDER BY sd.defenseOrder")
+    List<Integer> findTopicIdsBySessionId(@Param("sessionId") Integer sessionId);
     
     // Lấy tất cả StudentDefense với DefenseSession được fetch
     @Query("SELECT sd FROM StudentDefense sd LEFT JOIN FETCH sd.defenseSession")
     List<StudentDefense> findAllWithDefenseSession();
+
+    // Lấy các StudentDefense đã xếp buổi mà giảng viên là GVHD
+    @Query("SELECT sd FROM StudentDefense sd JOIN FETCH sd.defenseSession WHERE sd.supervisorId = :supervisorId")
+    List<StudentDefense> findScheduledBySupervisorId(@Param("supervisorId") Integer supervisorId);
+
+    // Lấy các StudentDefense thuộc danh sách buổi bảo vệ
+    @Query("SELECT sd FROM StudentDefense sd JOIN FETCH sd.defenseSession ds WHERE ds.sessionId IN :sessionIds")
+    List<StudentDefense> findBySessionIdsWithSession(@Param("sessionIds") Collection<Integer> sessionIds);
+
+    // Số sinh viên theo từng buổi: [sessionId, count]
+    @Query("SELECT sd.defenseSession.sessionId, COUNT(sd) FROM StudentDefense sd " +
+           "WHERE sd.defenseSession.sessionId IN :sessionIds GROUP BY sd.defenseSession.sessionId")
+    List<Object[]> countBySessionIds(@Param("sessionIds") Collection<Integer> sessionIds);
+
+    // Các cặp [sessionId, studentId] đã gán trong những buổi cho trước
+    @Query("SELECT sd.defenseSession.sessionId, sd.studentId FROM StudentDefense sd " +
+           "WHERE sd.defenseSession.sessionId IN :sessionIds")
+    List<Object[]> findSessionStudentPairs(@Param("sessionIds") Collection<Integer> sessionIds);
 }
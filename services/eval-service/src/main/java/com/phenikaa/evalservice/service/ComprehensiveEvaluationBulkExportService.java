@@ -0,0 +1,236 @@
+package com.phenikaa.evalservice.service;
+
+import com.phenikaa.evalservice.client.ThesisServiceClient;
+import com.phenikaa.evalservice.dto.response.BulkPDFExportProgressResponse;
+import com.phenikaa.evalservice.entity.StudentDefense;
+import com.phenikaa.evalservice.repository.StudentDefenseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Xuất PDF tổng hợp đánh giá cho cả buổi bảo vệ hoặc cả đợt đăng ký dưới dạng ZIP.
+ * PDF được render song song trên pool giới hạn và ghi vào ZIP ngay khi từng file xong,
+ * chỉ giữ tối đa vài PDF trong bộ nhớ cùng lúc.
+ */
+@Service
+@Slf4j
+public class ComprehensiveEvaluationBulkExportService {
+
+    private static final long FINISHED_EXPORT_RETENTION_MINUTES = 60;
+    // Lượt xuất đã đăng ký nhưng client không tải ZIP về
+    private static final long UNCLAIMED_EXPORT_RETENTION_MINUTES = 30;
+
+    private final ComprehensiveEvaluationPDFService pdfService;
+    private final StudentDefenseRepository studentDefenseRepository;
+    private final ThesisServiceClient thesisServiceClient;
+    private final ThreadPoolTaskExecutor renderPool;
+    private final int maxInFlight;
+
+    private final Map<String, ExportJob> exports = new ConcurrentHashMap<>();
+
+    public ComprehensiveEvaluationBulkExportService(ComprehensiveEvaluationPDFService pdfService,
+                                                    StudentDefenseRepository studentDefenseRepository,
+                                                    ThesisServiceClient thesisServiceClient,
+                                                    @Qualifier("pdfBulkExportExecutor") ThreadPoolTaskExecutor renderPool) {
+        this.pdfService = pdfService;
+        this.studentDefenseRepository = studentDefenseRepository;
+        this.thesisServiceClient = thesisServiceClient;
+        this.renderPool = renderPool;
+        this.maxInFlight = renderPool.getMaxPoolSize() * 2;
+    }
+
+    /**
+     * Lấy danh sách đề tài của một buổi bảo vệ theo thứ tự bảo vệ
+     */
+    public List<Integer> getTopicIdsBySession(Integer sessionId) {
+        Set<Integer> topicIds = new LinkedHashSet<>();
+        for (StudentDefense studentDefense : studentDefenseRepository.findByDefenseSession_SessionIdOrderByDefenseOrder(sessionId)) {
+            topicIds.add(studentDefense.getTopicId());
+        }
+        topicIds.remove(null);
+        return new ArrayList<>(topicIds);
+    }
+
+    /**
+     * Lấy danh sách đề tài (đăng ký + đề xuất) của một đợt đăng ký từ thesis-service
+     */
+    public List<Integer> getTopicIdsByPeriod(Integer periodId) {
+        return thesisServiceClient.getTopicIdsByPeriod(periodId);
+    }
+
+    /**
+     * Đăng ký một lượt xuất mới để client có thể theo dõi tiến độ qua exportId
+     */
+    public String startExport(String source, List<Integer> topicIds) {
+        String exportId = UUID.randomUUID().toString();
+        exports.put(exportId, new ExportJob(exportId, source, topicIds));
+        return exportId;
+    }
+
+    /**
+     * Dọn các lượt xuất đã xong quá hạn giữ và các lượt không bao giờ được tải về
+     */
+    @Scheduled(fixedDelay = 5 * 60 * 1000)
+    public void sweepExpiredExports() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime finishedBefore = now.minusMinutes(FINISHED_EXPORT_RETENTION_MINUTES);
+        LocalDateTime unclaimedBefore = now.minusMinutes(UNCLAIMED_EXPORT_RETENTION_MINUTES);
+        int before = exports.size();
+        exports.values().removeIf(job -> job.finishedAt != null
+                ? job.finishedAt.isBefore(finishedBefore)
+                : !job.streaming && job.startedAt.isBefore(unclaimedBefore));
+        int removed = before - exports.size();
+        if (removed > 0) {
+            log.debug("Removed {} expired bulk PDF exports", removed);
+        }
+    }
+
+    public BulkPDFExportProgressResponse getProgress(String exportId) {
+        ExportJob job = exports.get(exportId);
+        return job != null ? job.toResponse() : null;
+    }
+
+    /**
+     * Render toàn bộ PDF của lượt xuất và ghi lần lượt vào ZIP theo thứ tự hoàn thành.
+     * Đề tài lỗi không làm dừng cả lượt xuất; danh sách lỗi được ghi vào export_report.txt cuối ZIP.
+     */
+    public void writeZip(String exportId, OutputStream outputStream) throws IOException {
+        ExportJob job = exports.get(exportId);
+        if (job == null) {
+            throw new IllegalArgumentException("Không tìm thấy lượt xuất: " + exportId);
+        }
+        job.streaming = true;
+
+        CompletionService<RenderResult> completionService = new ExecutorCompletionService<>(renderPool);
+        List<Future<RenderResult>> futures = new ArrayList<>();
+        int nextIndex = 0;
+        int pending = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+        try {
+            while (nextIndex < job.topicIds.size() || pending > 0) {
+                while (pending < maxInFlight && nextIndex < job.topicIds.size()) {
+                    Integer topicId = job.topicIds.get(nextIndex++);
+                    futures.add(completionService.submit(() -> render(topicId)));
+                    pending++;
+                }
+
+                RenderResult result = takeNext(completionService);
+                pending--;
+
+                if (result.pdfBytes() != null) {
+                    zip.putNextEntry(new ZipEntry("comprehensive_evaluation_" + result.topicId() + ".pdf"));
+                    zip.write(result.pdfBytes());
+                    zip.closeEntry();
+                    zip.flush();
+                    job.completed.incrementAndGet();
+                } else {
+                    job.failures.put(result.topicId(), result.error());
+                }
+            }
+
+            zip.putNextEntry(new ZipEntry("export_report.txt"));
+            zip.write(job.buildReport().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.finish();
+        } catch (IOException e) {
+            // Client ngắt kết nối: huỷ các PDF chưa render xong
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            log.info("Bulk PDF export {} ({}) finished: {}/{} succeeded, {} failed",
+                    exportId, job.source, job.completed.get(), job.topicIds.size(), job.failures.size());
+        }
+    }
+
+    private RenderResult render(Integer topicId) {
+        try {
+            return new RenderResult(topicId, pdfService.generateComprehensiveEvaluationPDFFromTopic(topicId), null);
+        } catch (Exception e) {
+            log.warn("Bulk PDF export failed for topic {}: {}", topicId, e.getMessage());
+            return new RenderResult(topicId, null, Objects.requireNonNullElse(e.getMessage(), e.getClass().getSimpleName()));
+        }
+    }
+
+    private RenderResult takeNext(CompletionService<RenderResult> completionService) throws IOException {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bulk PDF export interrupted", e);
+        } catch (ExecutionException e) {
+            // render() đã tự bắt lỗi nên trường hợp này chỉ xảy ra khi task bị huỷ
+            throw new IOException("Bulk PDF export failed: " + e.getMessage(), e);
+        }
+    }
+
+    private record RenderResult(Integer topicId, byte[] pdfBytes, String error) {
+    }
+
+    private static class ExportJob {
+        private final String exportId;
+        private final String source;
+        private final List<Integer> topicIds;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final Map<Integer, String> failures = new ConcurrentHashMap<>();
+        private volatile boolean streaming;
+        private volatile LocalDateTime finishedAt;
+
+        private ExportJob(String exportId, String source, List<Integer> topicIds) {
+            this.exportId = exportId;
+            this.source = source;
+            this.topicIds = List.copyOf(topicIds);
+        }
+
+        private BulkPDFExportProgressResponse toResponse() {
+            return new BulkPDFExportProgressResponse(
+                    exportId,
+                    source,
+                    topicIds.size(),
+                    completed.get(),
+                    failures.size(),
+                    finishedAt != null,
+                    startedAt,
+                    finishedAt,
+                    new LinkedHashMap<>(failures)
+            );
+        }
+
+        private String buildReport() {
+            StringBuilder report = new StringBuilder();
+            report.append("Nguồn: ").append(source).append('\n');
+            report.append("Tổng số đề tài: ").append(topicIds.size()).append('\n');
+            report.append("Thành công: ").append(completed.get()).append('\n');
+            report.append("Lỗi: ").append(failures.size()).append('\n');
+            failures.forEach((topicId, error) ->
+                    report.append("- Đề tài ").append(topicId).append(": ").append(error).append('\n'));
+            return report.toString();
+        }
+    }
+}
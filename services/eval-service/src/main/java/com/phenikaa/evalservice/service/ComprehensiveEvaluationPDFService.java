@@ -1,8 +1,5 @@
 package com.phenikaa.evalservice.service;
 
-import com.itextpdf.html2pdf.HtmlConverter;
-import com.phenikaa.evalservice.client.ThesisServiceClient;
-import com.phenikaa.evalservice.client.ProfileServiceClient;
 import com.phenikaa.evalservice.dto.request.ComprehensiveEvaluationPDFRequest;
 import com.phenikaa.evalservice.dto.response.QnAResponse;
 import com.phenikaa.evalservice.dto.response.FinalScoreResponse;
@@ -15,7 +12,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -35,13 +31,13 @@ public class ComprehensiveEvaluationPDFService {
     
     private final ProjectEvaluationRepository evaluationRepository;
     private final DefenseQnAService qnAService;
-    private final ThesisServiceClient thesisServiceClient;
-    private final ProfileServiceClient profileServiceClient;
     private final StudentDefenseRepository studentDefenseRepository;
     private final CouncilSummaryService councilSummaryService;
     private final ReviewerSummaryService reviewerSummaryService;
-    private final EvaluationService evaluationService;
+    private final FinalScoreService finalScoreService;
     private final SupervisorSummaryServiceImpl supervisorSummaryService;
+    private final PDFRenderingEngine pdfRenderingEngine;
+    private final PDFReportDataLoader pdfReportDataLoader;
     
     /**
      * Tạo PDF tổng hợp đánh giá từ tất cả người chấm
@@ -111,9 +107,13 @@ public class ComprehensiveEvaluationPDFService {
             
             ProjectEvaluation firstEvaluation = evaluations.get(0);
             request.setStudentName(STUDENT_PREFIX + firstEvaluation.getStudentId());
+
+            // Lấy trước toàn bộ dữ liệu từ profile-service và thesis-service trong một đợt gọi song song
+            PDFReportDataLoader.PDFReportData reportData =
+                    pdfReportDataLoader.load(topicId, firstEvaluation.getStudentId(), evaluations);
             try {
                 String code = null;
-                Map<String, Object> studentProfileForCode = profileServiceClient.getStudentProfile(firstEvaluation.getStudentId());
+                Map<String, Object> studentProfileForCode = reportData.studentProfile();
                 log.info("Fetched studentProfile keys for id {} => {}", firstEvaluation.getStudentId(), studentProfileForCode != null ? studentProfileForCode.keySet() : null);
                 if (studentProfileForCode != null && !studentProfileForCode.isEmpty()) {
                     Object maybeUser = studentProfileForCode.get("user");
@@ -161,18 +161,18 @@ public class ComprehensiveEvaluationPDFService {
                     case COMMITTEE:
                         committeeCount++;
                         if (committeeCount == 1) {
-                            request.setChairman(createCommitteeMember(evaluation, "Thành viên hội đồng"));
+                            request.setChairman(createCommitteeMember(evaluation, "Thành viên hội đồng", reportData));
                         } else if (committeeCount == 2) {
-                            request.setSecretary(createCommitteeMember(evaluation, "Thành viên hội đồng"));
+                            request.setSecretary(createCommitteeMember(evaluation, "Thành viên hội đồng", reportData));
                         } else if (committeeCount == 3) {
-                            request.setMember(createCommitteeMember(evaluation, "Thành viên hội đồng"));
+                            request.setMember(createCommitteeMember(evaluation, "Thành viên hội đồng", reportData));
                         }
                         break;
                     case REVIEWER:
-                        request.setReviewer(createReviewer(evaluation));
+                        request.setReviewer(createReviewer(evaluation, reportData));
                         break;
                     case SUPERVISOR:
-                        request.setSupervisor(createSupervisor(evaluation));
+                        request.setSupervisor(createSupervisor(evaluation, reportData));
                         break;
                 }
             }
@@ -201,7 +201,7 @@ public class ComprehensiveEvaluationPDFService {
             // Lấy thông tin chi tiết từ các service khác
             try {
                 // Lấy thông tin đề tài từ thesis-service
-                Map<String, Object> topicInfo = thesisServiceClient.getTopicById(topicId);
+                Map<String, Object> topicInfo = reportData.topicInfo();
                 if (topicInfo != null && !topicInfo.isEmpty()) {
                     request.setTopicTitle((String) topicInfo.get("title"));
                 } else {
@@ -215,7 +215,7 @@ public class ComprehensiveEvaluationPDFService {
 
             try {
                 // Lấy thông tin sinh viên từ profile-service
-                Map<String, Object> studentProfile = profileServiceClient.getStudentProfile(firstEvaluation.getStudentId());
+                Map<String, Object> studentProfile = reportData.studentProfile();
                 if (studentProfile != null && !studentProfile.isEmpty()) {
                     String fullName = (String) studentProfile.get("fullName");
                     if (fullName != null && !fullName.trim().isEmpty()) {
@@ -253,12 +253,13 @@ public class ComprehensiveEvaluationPDFService {
     /**
      * Tạo CommitteeMember từ ProjectEvaluation
      */
-    private ComprehensiveEvaluationPDFRequest.CommitteeMember createCommitteeMember(ProjectEvaluation evaluation, String role) {
+    private ComprehensiveEvaluationPDFRequest.CommitteeMember createCommitteeMember(ProjectEvaluation evaluation, String role,
+                                                                                   PDFReportDataLoader.PDFReportData reportData) {
         ComprehensiveEvaluationPDFRequest.CommitteeMember member = new ComprehensiveEvaluationPDFRequest.CommitteeMember();
         
         // Lấy thông tin giảng viên từ profile-service
         try {
-            Map<String, Object> teacherProfile = profileServiceClient.getTeacherProfile(evaluation.getEvaluatorId());
+            Map<String, Object> teacherProfile = reportData.teacherProfile(evaluation.getEvaluatorId());
             if (teacherProfile != null && !teacherProfile.isEmpty()) {
                 String fullName = (String) teacherProfile.get("fullName");
                 if (fullName != null && !fullName.trim().isEmpty()) {
@@ -301,12 +302,12 @@ public class ComprehensiveEvaluationPDFService {
     /**
      * Tạo Reviewer từ ProjectEvaluation
      */
-    private ComprehensiveEvaluationPDFRequest.Reviewer createReviewer(ProjectEvaluation evaluation) {
+    private ComprehensiveEvaluationPDFRequest.Reviewer createReviewer(ProjectEvaluation evaluation, PDFReportDataLoader.PDFReportData reportData) {
         ComprehensiveEvaluationPDFRequest.Reviewer reviewer = new ComprehensiveEvaluationPDFRequest.Reviewer();
         
         // Lấy thông tin giảng viên từ profile-service
         try {
-            Map<String, Object> teacherProfile = profileServiceClient.getTeacherProfile(evaluation.getEvaluatorId());
+            Map<String, Object> teacherProfile = reportData.teacherProfile(evaluation.getEvaluatorId());
             if (teacherProfile != null && !teacherProfile.isEmpty()) {
                 String fullName = (String) teacherProfile.get("fullName");
                 if (fullName != null && !fullName.trim().isEmpty()) {
@@ -348,12 +349,12 @@ public class ComprehensiveEvaluationPDFService {
     /**
      * Tạo Supervisor từ ProjectEvaluation
      */
-    private ComprehensiveEvaluationPDFRequest.Supervisor createSupervisor(ProjectEvaluation evaluation) {
+    private ComprehensiveEvaluationPDFRequest.Supervisor createSupervisor(ProjectEvaluation evaluation, PDFReportDataLoader.PDFReportData reportData) {
         ComprehensiveEvaluationPDFRequest.Supervisor supervisor = new ComprehensiveEvaluationPDFRequest.Supervisor();
         
         // Lấy thông tin giảng viên từ profile-service
         try {
-            Map<String, Object> teacherProfile = profileServiceClient.getTeacherProfile(evaluation.getEvaluatorId());
+            Map<String, Object> teacherProfile = reportData.teacherProfile(evaluation.getEvaluatorId());
             if (teacherProfile != null && !teacherProfile.isEmpty()) {
                 String fullName = (String) teacherProfile.get("fullName");
                 if (fullName != null && !fullName.trim().isEmpty()) {
@@ -623,7 +624,7 @@ public class ComprehensiveEvaluationPDFService {
         // Section VI: Final Score (fetch from evaluationService)
         html.append("<div class='section'>");
         try {
-            FinalScoreResponse fs = evaluationService.calculateFinalScore(request.getTopicId());
+            FinalScoreResponse fs = finalScoreService.getFinalScore(request.getTopicId());
             Float score = (fs != null ? fs.getFinalScore() : null);
             String scoreText = (score != null) ? String.format("%.1f", score) : "...";
             String inWords = (score != null) ? toVietnameseScoreWords(score) : "...";
@@ -1449,22 +1450,7 @@ public class ComprehensiveEvaluationPDFService {
      */
     private byte[] convertHTMLToPDF(String htmlContent) throws IOException {
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
-            // Ensure font embedding for consistent rendering
-            com.itextpdf.html2pdf.ConverterProperties props = new com.itextpdf.html2pdf.ConverterProperties();
-            com.itextpdf.layout.font.FontProvider fontProvider = new com.itextpdf.layout.font.FontProvider();
-            try {
-                fontProvider.addSystemFonts(); // load OS fonts (Windows/Linux/Mac)
-                // Additionally try Windows fonts directory explicitly (no-op if not present)
-                fontProvider.addDirectory("C:/Windows/Fonts");
-            } catch (Exception ignore) { }
-            props.setFontProvider(fontProvider);
-            props.setCharset(java.nio.charset.StandardCharsets.UTF_8.name());
-
-            HtmlConverter.convertToPdf(htmlContent, outputStream, props);
-            
-            return outputStream.toByteArray();
+            return pdfRenderingEngine.render(htmlContent);
         } catch (Exception e) {
             log.error("Error converting HTML to PDF: {}", e.getMessage(), e);
             throw new IOException("Không thể chuyển đổi HTML sang PDF: " + e.getMessage(), e);
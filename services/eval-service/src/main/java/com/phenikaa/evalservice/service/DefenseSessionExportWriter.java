@@ -0,0 +1,157 @@
+package com.phenikaa.evalservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phenikaa.evalservice.dto.DefenseSessionExportDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+/**
+ * Ghi dữ liệu xuất buổi bảo vệ thẳng ra response theo từng buổi (JSON array, NDJSON hoặc CSV),
+ * bộ nhớ không tăng theo số buổi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DefenseSessionExportWriter {
+
+    private static final String CSV_HEADER = "sessionId,sessionName,universityName,defenseDate,startTime,location," +
+            "status,maxStudents,assignedCount,capacity,committee";
+    // BOM để Excel nhận đúng UTF-8 (tiếng Việt)
+    private static final char UTF8_BOM = '\uFEFF';
+
+    private final DefenseSessionService defenseSessionService;
+    private final ObjectMapper objectMapper;
+
+    @Getter
+    public enum ExportFormat {
+        JSON(MediaType.APPLICATION_JSON, "json"),
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+        CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        ExportFormat(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        /**
+         * Chọn định dạng: tham số format (json/ndjson/csv) được ưu tiên, sau đó đến header Accept.
+         * Accept dạng bảng tính (text/csv, application/vnd.ms-excel) trả về CSV; mặc định là JSON như trước.
+         */
+        public static ExportFormat resolve(String format, String accept) {
+            if (format != null && !format.isBlank()) {
+                for (ExportFormat value : values()) {
+                    if (value.extension.equalsIgnoreCase(format.trim())) {
+                        return value;
+                    }
+                }
+                throw new IllegalArgumentException("Định dạng xuất không hỗ trợ: " + format);
+            }
+            if (accept != null) {
+                String normalized = accept.toLowerCase();
+                if (normalized.contains("text/csv") || normalized.contains("application/vnd.ms-excel")) {
+                    return CSV;
+                }
+                if (normalized.contains("application/x-ndjson")) {
+                    return NDJSON;
+                }
+            }
+            return JSON;
+        }
+    }
+
+    public void write(ExportFormat format, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        int[] count = {0};
+        try {
+            switch (format) {
+                case JSON -> {
+                    writer.write('[');
+                    defenseSessionService.streamExportSessions(null, dto -> {
+                        writeUnchecked(writer, (count[0]++ > 0 ? "," : "") + toJson(dto));
+                    });
+                    writer.write(']');
+                }
+                case NDJSON -> defenseSessionService.streamExportSessions(null, dto -> {
+                    count[0]++;
+                    writeUnchecked(writer, toJson(dto) + "\n");
+                });
+                case CSV -> {
+                    writer.write(UTF8_BOM);
+                    writer.write(CSV_HEADER + "\r\n");
+                    defenseSessionService.streamExportSessions(null, dto -> {
+                        count[0]++;
+                        writeUnchecked(writer, toCsvLine(dto));
+                    });
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Đã xuất {} buổi bảo vệ dạng {}", count[0], format);
+    }
+
+    private String toJson(DefenseSessionExportDto dto) {
+        try {
+            return objectMapper.writeValueAsString(dto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toCsvLine(DefenseSessionExportDto dto) {
+        String committee = dto.getCommittee().stream()
+                .map(member -> member.getRole() + ":" + member.getLecturerId())
+                .collect(Collectors.joining(";"));
+        return String.join(",",
+                csv(dto.getSessionId()),
+                csv(dto.getSessionName()),
+                csv(dto.getUniversityName()),
+                csv(dto.getDefenseDate()),
+                csv(dto.getStartTime()),
+                csv(dto.getLocation()),
+                csv(dto.getStatus()),
+                csv(dto.getMaxStudents()),
+                csv(dto.getAssignedCount()),
+                csv(dto.getCapacity()),
+                csv(committee)) + "\r\n";
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        // Chặn công thức khi mở bằng bảng tính
+        if (!text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0 && !(value instanceof Number)) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    private static void writeUnchecked(Writer writer, String text) {
+        try {
+            writer.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -14,11 +14,23 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +43,8 @@ public class DefenseSessionService {
     private final DefenseSessionRepository defenseSessionRepository;
     private final DefenseScheduleRepository defenseScheduleRepository;
     private final DefenseCommitteeRepository defenseCommitteeRepository;
+    private final ScheduledTaskService scheduledTaskService;
+    private final StudentScheduleService studentScheduleService;
 
     /**
      * Tạo buổi bảo vệ mới
@@ -63,6 +77,7 @@ public class DefenseSessionService {
 
         DefenseSession savedSession = defenseSessionRepository.save(session);
         log.info("Đã tạo buổi bảo vệ với ID: {}", savedSession.getSessionId());
+        rescheduleStatusAfterCommit(savedSession);
         
         // Tạo hội đồng chấm điểm nếu có danh sách thành viên
         if (sessionDto.getCommitteeMembers() != null && !sessionDto.getCommitteeMembers().isEmpty()) {
@@ -109,18 +124,18 @@ public class DefenseSessionService {
 
         DefenseSession updatedSession = defenseSessionRepository.save(existingSession);
         log.info("Đã cập nhật buổi bảo vệ ID: {}", sessionId);
+        rescheduleStatusAfterCommit(updatedSession);
+        studentScheduleService.invalidateSession(sessionId);
         
         // Cập nhật hội đồng chấm điểm nếu có danh sách thành viên mới
         if (sessionDto.getCommitteeMembers() != null && !sessionDto.getCommitteeMembers().isEmpty()) {
             // Xóa hội đồng cũ
             List<DefenseCommittee> existingCommittees = defenseCommitteeRepository.findByDefenseSession_SessionId(sessionId);
-            for (DefenseCommittee committee : existingCommittees) {
-                if (committee.getRole() == DefenseCommittee.CommitteeRole.CHAIRMAN || 
-                    committee.getRole() == DefenseCommittee.CommitteeRole.SECRETARY || 
-                    committee.getRole() == DefenseCommittee.CommitteeRole.MEMBER) {
-                    defenseCommitteeRepository.delete(committee);
-                }
-            }
+            defenseCommitteeRepository.deleteAllInBatch(existingCommittees.stream()
+                    .filter(committee -> committee.getRole() == DefenseCommittee.CommitteeRole.CHAIRMAN ||
+                            committee.getRole() == DefenseCommittee.CommitteeRole.SECRETARY ||
+                            committee.getRole() == DefenseCommittee.CommitteeRole.MEMBER)
+                    .toList());
             
             // Tạo hội đồng mới với vai trò theo thứ tự
             createDefenseCommitteesWithRoles(updatedSession, sessionDto.getCommitteeMembers());
@@ -132,11 +147,9 @@ public class DefenseSessionService {
         if (sessionDto.getReviewerMembers() != null && !sessionDto.getReviewerMembers().isEmpty()) {
             // Xóa giảng viên phản biện cũ
             List<DefenseCommittee> existingCommittees = defenseCommitteeRepository.findByDefenseSession_SessionId(sessionId);
-            for (DefenseCommittee committee : existingCommittees) {
-                if (committee.getRole() == DefenseCommittee.CommitteeRole.REVIEWER) {
-                    defenseCommitteeRepository.delete(committee);
-                }
-            }
+            defenseCommitteeRepository.deleteAllInBatch(existingCommittees.stream()
+                    .filter(committee -> committee.getRole() == DefenseCommittee.CommitteeRole.REVIEWER)
+                    .toList());
             
             // Tạo giảng viên phản biện mới
             createDefenseCommittees(updatedSession, sessionDto.getReviewerMembers(), DefenseCommittee.CommitteeRole.REVIEWER);
@@ -170,60 +183,80 @@ public class DefenseSessionService {
     /**
      * Xuất dữ liệu buổi bảo vệ (thông tin + hội đồng)
      */
+    @Transactional(readOnly = true)
     public DefenseSessionExportDto exportSession(Integer sessionId) {
-        DefenseSession session = defenseSessionRepository.findById(sessionId)
-                .orElseThrow(() -> new DefenseSessionNotFoundException(SESSION_NOT_FOUND_MESSAGE + sessionId));
-        return toExportDto(session);
+        List<DefenseSessionExportDto> result = new ArrayList<>(1);
+        streamExportSessions(sessionId, result::add);
+        if (result.isEmpty()) {
+            throw new DefenseSessionNotFoundException(SESSION_NOT_FOUND_MESSAGE + sessionId);
+        }
+        return result.get(0);
     }
 
     /**
-     * Xuất dữ liệu tất cả buổi bảo vệ
+     * Đọc dữ liệu xuất bằng một truy vấn dạng stream và đẩy lần lượt từng buổi cho sink,
+     * không giữ toàn bộ danh sách trong bộ nhớ. sessionId null = tất cả buổi.
      */
-    public List<DefenseSessionExportDto> exportAllSessions() {
-        return defenseSessionRepository.findAll().stream()
-                .map(this::toExportDto)
-                .collect(Collectors.toList());
-    }
-
-    private DefenseSessionExportDto toExportDto(DefenseSession session) {
-        Integer assigned = 0;
-        try {
-            assigned = session.getStudentDefenses() != null ? session.getStudentDefenses().size() : 0;
-        } catch (Exception ignored) {}
-
-        var committees = defenseCommitteeRepository.findByDefenseSession_SessionId(session.getSessionId())
-                .stream()
-                .map(c -> DefenseSessionExportDto.CommitteeMember.builder()
-                        .lecturerId(c.getLecturerId())
-                        .role(c.getRole())
-                        .build())
-                .toList();
-
-        String statusText;
-        switch (session.getStatus()) {
-            case PLANNING -> statusText = "Lập kế hoạch";
-            case SCHEDULED -> statusText = "Sắp diễn ra";
-            case IN_PROGRESS -> statusText = "Đang diễn ra";
-            case COMPLETED -> statusText = "Đã hoàn thành";
-            default -> statusText = "N/A";
+    @Transactional(readOnly = true)
+    public void streamExportSessions(Integer sessionId, Consumer<DefenseSessionExportDto> sink) {
+        try (Stream<Object[]> rows = defenseSessionRepository.streamExportRows(sessionId)) {
+            DefenseSessionExportDto current = null;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                Integer rowSessionId = (Integer) row[0];
+                if (current == null || !current.getSessionId().equals(rowSessionId)) {
+                    if (current != null) {
+                        sink.accept(current);
+                    }
+                    current = toExportDto(row);
+                }
+                if (row[8] != null) {
+                    current.getCommittee().add(DefenseSessionExportDto.CommitteeMember.builder()
+                            .lecturerId((Integer) row[8])
+                            .role((DefenseCommittee.CommitteeRole) row[9])
+                            .build());
+                }
+            }
+            if (current != null) {
+                sink.accept(current);
+            }
         }
+    }
 
+    // row: sessionId, sessionName, defenseDate, startTime, location, status, maxStudents, assignedCount, lecturerId, role
+    private DefenseSessionExportDto toExportDto(Object[] row) {
+        LocalDateTime startTime = (LocalDateTime) row[3];
+        Integer maxStudents = (Integer) row[6];
         return DefenseSessionExportDto.builder()
-                .sessionId(session.getSessionId())
-                .sessionName(session.getSessionName())
+                .sessionId((Integer) row[0])
+                .sessionName((String) row[1])
                 .universityName("Đại học Phenikaa")
-                .defenseDate(session.getDefenseDate())
-                .startTime(session.getStartTime())
-                .startTimeFormatted(session.getStartTime() != null ? session.getStartTime().toLocalTime().toString() : null)
-                .location(session.getLocation())
-                .status(statusText)
-                .maxStudents(session.getMaxStudents())
-                .assignedCount(assigned)
-                .capacity(session.getMaxStudents())
-                .committee(committees)
+                .defenseDate((LocalDate) row[2])
+                .startTime(startTime)
+                .startTimeFormatted(startTime != null ? startTime.toLocalTime().toString() : null)
+                .location((String) row[4])
+                .status(statusText((DefenseSession.SessionStatus) row[5]))
+                .maxStudents(maxStudents)
+                .assignedCount(((Number) row[7]).intValue())
+                .capacity(maxStudents)
+                .committee(new ArrayList<>())
                 .build();
     }
 
+    private static String statusText(DefenseSession.SessionStatus status) {
+        if (status == null) {
+            return "N/A";
+        }
+        return switch (status) {
+            case PLANNING -> "Lập kế hoạch";
+            case SCHEDULED -> "Sắp diễn ra";
+            case IN_PROGRESS -> "Đang diễn ra";
+            case COMPLETED -> "Đã hoàn thành";
+            default -> "N/A";
+        };
+    }
+
     /**
      * Lấy tất cả buổi bảo vệ theo lịch
      */
@@ -285,10 +318,24 @@ public class DefenseSessionService {
 
         session.setStatus(status);
         defenseSessionRepository.save(session);
+        rescheduleStatusAfterCommit(session);
+        studentScheduleService.invalidateSession(sessionId);
         
         log.info("Đã cập nhật trạng thái buổi bảo vệ ID: {}", sessionId);
     }
 
+    /**
+     * Đăng ký lại mốc chuyển trạng thái tự động sau khi transaction commit thành công
+     */
+    private void rescheduleStatusAfterCommit(DefenseSession session) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scheduledTaskService.onSessionChanged(session);
+            }
+        });
+    }
+
     /**
      * Xóa buổi bảo vệ
      */
@@ -304,7 +351,14 @@ public class DefenseSessionService {
             throw new DefenseSessionValidationException("Không thể xóa buổi bảo vệ đang diễn ra hoặc đã hoàn thành");
         }
 
+        studentScheduleService.invalidateSession(sessionId);
         defenseSessionRepository.delete(session);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scheduledTaskService.onSessionDeleted(sessionId);
+            }
+        });
         log.info("Đã xóa buổi bảo vệ ID: {}", sessionId);
     }
 
@@ -322,17 +376,17 @@ public class DefenseSessionService {
      * Tạo hội đồng chấm điểm cho buổi bảo vệ
      */
     private void createDefenseCommittees(DefenseSession session, List<Integer> lecturerIds, DefenseCommittee.CommitteeRole role) {
+        List<DefenseCommittee> committees = new ArrayList<>(lecturerIds.size());
         for (Integer lecturerId : lecturerIds) {
-            DefenseCommittee committee = DefenseCommittee.builder()
+            committees.add(DefenseCommittee.builder()
                     .defenseSession(session)
                     .lecturerId(lecturerId)
                     .role(role)
-                    .build();
-            
-            defenseCommitteeRepository.save(committee);
-            log.info("Đã tạo thành viên hội đồng: lecturerId={}, sessionId={}, role={}", 
-                    lecturerId, session.getSessionId(), role);
+                    .build());
         }
+        defenseCommitteeRepository.insertAllInBatch(committees);
+        log.info("Đã tạo {} thành viên hội đồng: lecturerIds={}, sessionId={}, role={}",
+                committees.size(), lecturerIds, session.getSessionId(), role);
     }
 
     /**
@@ -340,6 +394,7 @@ public class DefenseSessionService {
      * Thứ tự 1: Chủ tịch hội đồng, Thứ tự 2: Thư ký, Thứ tự 3: Thành viên
      */
     private void createDefenseCommitteesWithRoles(DefenseSession session, List<Integer> lecturerIds) {
+        List<DefenseCommittee> committees = new ArrayList<>(lecturerIds.size());
         for (int i = 0; i < lecturerIds.size(); i++) {
             DefenseCommittee.CommitteeRole role;
             switch (i) {
@@ -354,208 +409,277 @@ public class DefenseSessionService {
                     break;
             }
 
-            DefenseCommittee committee = DefenseCommittee.builder()
+            committees.add(DefenseCommittee.builder()
                     .defenseSession(session)
                     .lecturerId(lecturerIds.get(i))
                     .role(role)
-                    .build();
-            
-            defenseCommitteeRepository.save(committee);
-            log.info("Đã tạo thành viên hội đồng: lecturerId={}, sessionId={}, role={} (thứ tự {})", 
-                    lecturerIds.get(i), session.getSessionId(), role, i + 1);
+                    .build());
         }
+        defenseCommitteeRepository.insertAllInBatch(committees);
+        log.info("Đã tạo {} thành viên hội đồng theo thứ tự (chủ tịch, thư ký, thành viên): lecturerIds={}, sessionId={}",
+                committees.size(), lecturerIds, session.getSessionId());
     }
 
     /**
      * Validate dữ liệu buổi bảo vệ trước khi tạo
      */
     private void validateSessionData(DefenseSessionDto sessionDto) {
-        // Validate số lượng thành viên hội đồng (tối đa 3)
-        if (sessionDto.getCommitteeMembers() != null && sessionDto.getCommitteeMembers().size() > 3) {
-            throw new DefenseSessionValidationException("Số lượng thành viên hội đồng không được vượt quá 3 người");
-        }
-
-        // Validate số lượng giảng viên phản biện (tối đa 1)
-        if (sessionDto.getReviewerMembers() != null && sessionDto.getReviewerMembers().size() > 1) {
-            throw new DefenseSessionValidationException("Số lượng giảng viên phản biện không được vượt quá 1 người");
-        }
+        validateSessionDataForUpdate(sessionDto, null);
+    }
 
-        // Validate thời gian (endTime phải sau startTime)
-        if (sessionDto.getStartTime() != null && sessionDto.getEndTime() != null) {
-            if (!sessionDto.getStartTime().isBefore(sessionDto.getEndTime())) {
-                throw new DefenseSessionValidationException("Thời gian kết thúc phải sau thời gian bắt đầu");
-            }
+    /**
+     * Validate dữ liệu buổi bảo vệ trước khi cập nhật (loại trừ session hiện tại; null khi tạo mới)
+     */
+    private void validateSessionDataForUpdate(DefenseSessionDto sessionDto, Integer currentSessionId) {
+        String error = validateSessionFields(sessionDto);
+        if (error != null) {
+            throw new DefenseSessionValidationException(error);
         }
 
         // Validate phòng không trùng cùng thời gian
-        validateLocationTimeConflict(sessionDto);
+        validateLocationTimeConflict(sessionDto, currentSessionId);
 
         // Validate giảng viên không trùng lịch
-        validateLecturerTimeConflict(sessionDto);
+        validateLecturerTimeConflict(sessionDto, currentSessionId);
     }
 
     /**
-     * Validate dữ liệu buổi bảo vệ trước khi cập nhật (loại trừ session hiện tại)
+     * Kiểm tra số lượng thành viên và thời gian; trả về thông báo lỗi hoặc null nếu hợp lệ
      */
-    private void validateSessionDataForUpdate(DefenseSessionDto sessionDto, Integer currentSessionId) {
+    private String validateSessionFields(DefenseSessionDto sessionDto) {
         // Validate số lượng thành viên hội đồng (tối đa 3)
         if (sessionDto.getCommitteeMembers() != null && sessionDto.getCommitteeMembers().size() > 3) {
-            throw new DefenseSessionValidationException("Số lượng thành viên hội đồng không được vượt quá 3 người");
+            return "Số lượng thành viên hội đồng không được vượt quá 3 người";
         }
 
         // Validate số lượng giảng viên phản biện (tối đa 1)
         if (sessionDto.getReviewerMembers() != null && sessionDto.getReviewerMembers().size() > 1) {
-            throw new DefenseSessionValidationException("Số lượng giảng viên phản biện không được vượt quá 1 người");
+            return "Số lượng giảng viên phản biện không được vượt quá 1 người";
         }
 
         // Validate thời gian (endTime phải sau startTime)
-        if (sessionDto.getStartTime() != null && sessionDto.getEndTime() != null) {
-            if (!sessionDto.getStartTime().isBefore(sessionDto.getEndTime())) {
-                throw new DefenseSessionValidationException("Thời gian kết thúc phải sau thời gian bắt đầu");
-            }
+        if (sessionDto.getStartTime() != null && sessionDto.getEndTime() != null
+                && !sessionDto.getStartTime().isBefore(sessionDto.getEndTime())) {
+            return "Thời gian kết thúc phải sau thời gian bắt đầu";
         }
-
-        // Validate phòng không trùng cùng thời gian (loại trừ session hiện tại)
-        validateLocationTimeConflictForUpdate(sessionDto, currentSessionId);
-
-        // Validate giảng viên không trùng lịch (loại trừ session hiện tại)
-        validateLecturerTimeConflictForUpdate(sessionDto, currentSessionId);
+        return null;
     }
 
     /**
-     * Kiểm tra xung đột phòng cùng thời gian
+     * Kiểm tra xung đột phòng cùng thời gian; điều kiện giao khoảng được đẩy xuống SQL
      */
-    private void validateLocationTimeConflict(DefenseSessionDto sessionDto) {
+    private void validateLocationTimeConflict(DefenseSessionDto sessionDto, Integer currentSessionId) {
         if (sessionDto.getLocation() == null || sessionDto.getStartTime() == null || sessionDto.getEndTime() == null) {
             return;
         }
 
-        List<DefenseSession> conflictingSessions = defenseSessionRepository.findByLocation(sessionDto.getLocation())
-                .stream()
-                .filter(session -> isTimeOverlap(sessionDto.getStartTime(), sessionDto.getEndTime(), 
-                                               session.getStartTime(), session.getEndTime()))
-                .toList();
-
-        if (!conflictingSessions.isEmpty()) {
-            throw new DefenseSessionValidationException("Phòng " + sessionDto.getLocation() + 
-                    " đã được sử dụng trong khoảng thời gian này. Vui lòng chọn phòng khác hoặc thời gian khác.");
+        if (defenseSessionRepository.existsLocationConflict(sessionDto.getLocation(),
+                sessionDto.getStartTime(), sessionDto.getEndTime(), currentSessionId)) {
+            throw new DefenseSessionValidationException(locationConflictMessage(sessionDto.getLocation()));
         }
     }
 
     /**
-     * Kiểm tra xung đột lịch giảng viên
+     * Kiểm tra xung đột lịch giảng viên: một truy vấn cho toàn bộ hội đồng và phản biện
      */
-    private void validateLecturerTimeConflict(DefenseSessionDto sessionDto) {
+    private void validateLecturerTimeConflict(DefenseSessionDto sessionDto, Integer currentSessionId) {
         if (sessionDto.getStartTime() == null || sessionDto.getEndTime() == null) {
             return;
         }
 
-        // Kiểm tra tất cả giảng viên trong hội đồng
-        if (sessionDto.getCommitteeMembers() != null) {
-            for (Integer lecturerId : sessionDto.getCommitteeMembers()) {
-                validateLecturerTimeConflict(lecturerId, sessionDto.getStartTime(), sessionDto.getEndTime());
-            }
+        List<Integer> lecturerIds = lecturerIdsOf(sessionDto);
+        if (lecturerIds.isEmpty()) {
+            return;
         }
 
-        // Kiểm tra giảng viên phản biện
-        if (sessionDto.getReviewerMembers() != null) {
-            for (Integer lecturerId : sessionDto.getReviewerMembers()) {
-                validateLecturerTimeConflict(lecturerId, sessionDto.getStartTime(), sessionDto.getEndTime());
+        Set<Integer> conflicted = new HashSet<>(defenseCommitteeRepository.findLecturerIdsWithConflict(
+                lecturerIds, sessionDto.getStartTime(), sessionDto.getEndTime(), currentSessionId));
+        for (Integer lecturerId : lecturerIds) {
+            if (conflicted.contains(lecturerId)) {
+                throw new DefenseSessionValidationException(lecturerConflictMessage(lecturerId));
             }
         }
     }
 
     /**
-     * Kiểm tra xung đột lịch của một giảng viên cụ thể
+     * Kiểm tra hàng loạt các buổi bảo vệ dự kiến tạo mới (dùng cho xác nhận auto-assign).
+     * Nạp lịch phòng và lịch giảng viên liên quan trong hai truy vấn theo cửa sổ thời gian của cả lô,
+     * dựng chỉ mục khoảng thời gian theo phòng / giảng viên rồi kiểm tra từng buổi, kể cả xung đột giữa các buổi trong lô.
+     *
+     * @return index buổi trong danh sách -> thông báo lỗi; rỗng nếu tất cả hợp lệ
      */
-    private void validateLecturerTimeConflict(Integer lecturerId, LocalDateTime startTime, LocalDateTime endTime) {
-        List<DefenseCommittee> lecturerCommittees = defenseCommitteeRepository.findByLecturerId(lecturerId);
-        
-        for (DefenseCommittee committee : lecturerCommittees) {
-            DefenseSession existingSession = committee.getDefenseSession();
-            if (existingSession != null && 
-                isTimeOverlap(startTime, endTime, existingSession.getStartTime(), existingSession.getEndTime())) {
-                
-                throw new DefenseSessionValidationException("Giảng viên ID " + lecturerId + 
-                        " đã có lịch bảo vệ trong khoảng thời gian này. Vui lòng chọn thời gian khác.");
+    @Transactional(readOnly = true)
+    public Map<Integer, String> validateProposedSessions(List<DefenseSessionDto> proposals) {
+        Map<Integer, String> errors = new LinkedHashMap<>();
+        if (proposals == null || proposals.isEmpty()) {
+            return errors;
+        }
+
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        Set<String> locations = new HashSet<>();
+        Set<Integer> lecturerIds = new HashSet<>();
+        for (int i = 0; i < proposals.size(); i++) {
+            DefenseSessionDto dto = proposals.get(i);
+            String error = validateSessionFields(dto);
+            if (error != null) {
+                errors.put(i, error);
+                continue;
+            }
+            if (dto.getStartTime() == null || dto.getEndTime() == null) {
+                continue;
+            }
+            from = from == null || dto.getStartTime().isBefore(from) ? dto.getStartTime() : from;
+            to = to == null || dto.getEndTime().isAfter(to) ? dto.getEndTime() : to;
+            if (dto.getLocation() != null) {
+                locations.add(dto.getLocation());
             }
+            lecturerIds.addAll(lecturerIdsOf(dto));
+        }
+        if (from == null) {
+            return errors;
         }
-    }
 
-    /**
-     * Kiểm tra xung đột phòng cùng thời gian cho update (loại trừ session hiện tại)
-     */
-    private void validateLocationTimeConflictForUpdate(DefenseSessionDto sessionDto, Integer currentSessionId) {
-        if (sessionDto.getLocation() == null || sessionDto.getStartTime() == null || sessionDto.getEndTime() == null) {
-            return;
+        Map<String, IntervalIndex> roomIndex = new HashMap<>();
+        if (!locations.isEmpty()) {
+            for (DefenseSession existing : defenseSessionRepository.findByLocationsWithin(locations, from, to)) {
+                roomIndex.computeIfAbsent(existing.getLocation(), k -> new IntervalIndex())
+                        .add(existing.getStartTime(), existing.getEndTime());
+            }
+        }
+        Map<Integer, IntervalIndex> lecturerIndex = new HashMap<>();
+        if (!lecturerIds.isEmpty()) {
+            for (DefenseCommittee existing : defenseCommitteeRepository.findByLecturerIdsWithin(lecturerIds, from, to)) {
+                lecturerIndex.computeIfAbsent(existing.getLecturerId(), k -> new IntervalIndex())
+                        .add(existing.getDefenseSession().getStartTime(), existing.getDefenseSession().getEndTime());
+            }
         }
 
-        List<DefenseSession> conflictingSessions = defenseSessionRepository.findByLocation(sessionDto.getLocation())
-                .stream()
-                .filter(session -> !session.getSessionId().equals(currentSessionId)) // Loại trừ session hiện tại
-                .filter(session -> isTimeOverlap(sessionDto.getStartTime(), sessionDto.getEndTime(), 
-                                               session.getStartTime(), session.getEndTime()))
-                .toList();
+        // Duyệt theo thứ tự; buổi hợp lệ được thêm vào chỉ mục để phát hiện xung đột với các buổi sau trong lô
+        for (int i = 0; i < proposals.size(); i++) {
+            DefenseSessionDto dto = proposals.get(i);
+            if (errors.containsKey(i) || dto.getStartTime() == null || dto.getEndTime() == null) {
+                continue;
+            }
+            LocalDateTime start = dto.getStartTime();
+            LocalDateTime end = dto.getEndTime();
 
-        if (!conflictingSessions.isEmpty()) {
-            throw new DefenseSessionValidationException("Phòng " + sessionDto.getLocation() + 
-                    " đã được sử dụng trong khoảng thời gian này. Vui lòng chọn phòng khác hoặc thời gian khác.");
-        }
-    }
+            String error = null;
+            IntervalIndex room = dto.getLocation() != null ? roomIndex.get(dto.getLocation()) : null;
+            if (room != null && room.overlaps(start, end)) {
+                error = locationConflictMessage(dto.getLocation());
+            }
+            List<Integer> sessionLecturers = lecturerIdsOf(dto);
+            for (int k = 0; error == null && k < sessionLecturers.size(); k++) {
+                IntervalIndex lecturer = lecturerIndex.get(sessionLecturers.get(k));
+                if (lecturer != null && lecturer.overlaps(start, end)) {
+                    error = lecturerConflictMessage(sessionLecturers.get(k));
+                }
+            }
+            if (error != null) {
+                errors.put(i, error);
+                continue;
+            }
 
-    /**
-     * Kiểm tra xung đột lịch giảng viên cho update (loại trừ session hiện tại)
-     */
-    private void validateLecturerTimeConflictForUpdate(DefenseSessionDto sessionDto, Integer currentSessionId) {
-        if (sessionDto.getStartTime() == null || sessionDto.getEndTime() == null) {
-            return;
+            if (dto.getLocation() != null) {
+                roomIndex.computeIfAbsent(dto.getLocation(), k -> new IntervalIndex()).addAccepted(start, end);
+            }
+            for (Integer lecturerId : sessionLecturers) {
+                lecturerIndex.computeIfAbsent(lecturerId, k -> new IntervalIndex()).addAccepted(start, end);
+            }
         }
+        return errors;
+    }
 
-        // Kiểm tra tất cả giảng viên trong hội đồng
+    private static List<Integer> lecturerIdsOf(DefenseSessionDto sessionDto) {
+        List<Integer> lecturerIds = new ArrayList<>();
         if (sessionDto.getCommitteeMembers() != null) {
-            for (Integer lecturerId : sessionDto.getCommitteeMembers()) {
-                validateLecturerTimeConflictForUpdate(lecturerId, sessionDto.getStartTime(), sessionDto.getEndTime(), currentSessionId);
-            }
+            lecturerIds.addAll(sessionDto.getCommitteeMembers());
         }
-
-        // Kiểm tra giảng viên phản biện
         if (sessionDto.getReviewerMembers() != null) {
-            for (Integer lecturerId : sessionDto.getReviewerMembers()) {
-                validateLecturerTimeConflictForUpdate(lecturerId, sessionDto.getStartTime(), sessionDto.getEndTime(), currentSessionId);
-            }
+            lecturerIds.addAll(sessionDto.getReviewerMembers());
         }
+        lecturerIds.removeIf(java.util.Objects::isNull);
+        return lecturerIds;
+    }
+
+    private static String locationConflictMessage(String location) {
+        return "Phòng " + location +
+                " đã được sử dụng trong khoảng thời gian này. Vui lòng chọn phòng khác hoặc thời gian khác.";
+    }
+
+    private static String lecturerConflictMessage(Integer lecturerId) {
+        return "Giảng viên ID " + lecturerId +
+                " đã có lịch bảo vệ trong khoảng thời gian này. Vui lòng chọn thời gian khác.";
     }
 
     /**
-     * Kiểm tra xung đột lịch của một giảng viên cụ thể cho update (loại trừ session hiện tại)
+     * Chỉ mục khoảng thời gian cho một phòng hoặc một giảng viên.
+     * Các khoảng đã có trong DB (có thể chồng nhau) được nạp hết bằng add() rồi dựng mảng sắp theo start
+     * kèm end lớn nhất tiền tố đúng một lần ở lần overlaps() đầu tiên; các buổi được chấp nhận trong lô
+     * đi qua addAccepted() vào một TreeMap riêng, không làm dựng lại mảng.
+     * Buổi được chấp nhận đã qua overlaps() nên rời nhau, end tăng theo start, và chỉ cần xét khoảng
+     * có start lớn nhất trước end. Mỗi overlaps()/addAccepted() vì vậy là O(log n).
+     * Hai khoảng trùng nếu giao nhau (start1 < end2 và start2 < end1) hoặc bắt đầu cùng thời điểm,
+     * giống điều kiện trong các truy vấn xung đột của repository.
      */
-    private void validateLecturerTimeConflictForUpdate(Integer lecturerId, LocalDateTime startTime, LocalDateTime endTime, Integer currentSessionId) {
-        List<DefenseCommittee> lecturerCommittees = defenseCommitteeRepository.findByLecturerId(lecturerId);
-        
-        for (DefenseCommittee committee : lecturerCommittees) {
-            DefenseSession existingSession = committee.getDefenseSession();
-            if (existingSession != null && 
-                !existingSession.getSessionId().equals(currentSessionId) && // Loại trừ session hiện tại
-                isTimeOverlap(startTime, endTime, existingSession.getStartTime(), existingSession.getEndTime())) {
-                
-                throw new DefenseSessionValidationException("Giảng viên ID " + lecturerId + 
-                        " đã có lịch bảo vệ trong khoảng thời gian này. Vui lòng chọn thời gian khác.");
+    private static final class IntervalIndex {
+        private final TreeMap<LocalDateTime, LocalDateTime> existingMaxEndByStart = new TreeMap<>();
+        private final TreeMap<LocalDateTime, LocalDateTime> accepted = new TreeMap<>();
+        private LocalDateTime[] starts;
+        private LocalDateTime[] prefixMaxEnd;
+
+        /** Nạp khoảng đã có trong DB; chỉ gọi trước lần overlaps() đầu tiên */
+        void add(LocalDateTime start, LocalDateTime end) {
+            if (start == null || end == null) {
+                return;
             }
+            if (starts != null) {
+                throw new IllegalStateException("IntervalIndex đã được dựng; dùng addAccepted()");
+            }
+            existingMaxEndByStart.merge(start, end, (a, b) -> a.isAfter(b) ? a : b);
         }
-    }
 
-    /**
-     * Kiểm tra xem hai khoảng thời gian có trùng lặp không
-     */
-    private boolean isTimeOverlap(LocalDateTime start1, LocalDateTime end1, LocalDateTime start2, LocalDateTime end2) {
-        if (start1 == null || end1 == null || start2 == null || end2 == null) {
-            return false;
+        /** Thêm buổi vừa được chấp nhận trong lô; buổi này phải không trùng khoảng nào trong chỉ mục */
+        void addAccepted(LocalDateTime start, LocalDateTime end) {
+            accepted.put(start, end);
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            if (existingMaxEndByStart.containsKey(start) || accepted.containsKey(start)) {
+                return true;
+            }
+            Map.Entry<LocalDateTime, LocalDateTime> latest = accepted.lowerEntry(end);
+            if (latest != null && latest.getValue().isAfter(start)) {
+                return true;
+            }
+            buildIfNeeded();
+            // Số khoảng có thời điểm bắt đầu < end
+            int lo = 0;
+            int hi = starts.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (starts[mid].isBefore(end)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo > 0 && prefixMaxEnd[lo - 1].isAfter(start);
+        }
+
+        private void buildIfNeeded() {
+            if (starts != null) {
+                return;
+            }
+            starts = existingMaxEndByStart.keySet().toArray(new LocalDateTime[0]);
+            prefixMaxEnd = new LocalDateTime[starts.length];
+            LocalDateTime max = null;
+            for (int i = 0; i < starts.length; i++) {
+                LocalDateTime end = existingMaxEndByStart.get(starts[i]);
+                max = max == null || end.isAfter(max) ? end : max;
+                prefixMaxEnd[i] = max;
+            }
         }
-        
-        // Hai khoảng thời gian trùng lặp nếu:
-        // 1) start1 < end2 AND start2 < end1 (chồng lên nhau)
-        // 2) Hoặc bắt đầu đúng cùng thời điểm (start1 == start2)
-        return (start1.isBefore(end2) && start2.isBefore(end1))
-                || start1.equals(start2);
     }
 }
@@ -5,12 +5,12 @@ import com.phenikaa.evalservice.dto.response.EvaluationResponse;
 import com.phenikaa.evalservice.dto.response.FinalScoreResponse;
 import com.phenikaa.evalservice.entity.ProjectEvaluation;
 import com.phenikaa.evalservice.entity.DefenseCommittee;
+import com.phenikaa.evalservice.entity.StudentDefense;
 import com.phenikaa.evalservice.repository.ProjectEvaluationRepository;
 import com.phenikaa.evalservice.repository.StudentDefenseRepository;
 import com.phenikaa.evalservice.repository.DefenseCommitteeRepository;
 import com.phenikaa.evalservice.repository.DefenseSessionRepository;
 import com.phenikaa.evalservice.client.ThesisServiceClient;
-import com.phenikaa.evalservice.client.NotificationServiceClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,9 +19,12 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,7 +38,7 @@ public class EvaluationService {
     private final DefenseCommitteeRepository defenseCommitteeRepository;
     private final DefenseSessionRepository defenseSessionRepository;
     private final ThesisServiceClient thesisServiceClient;
-    private final NotificationServiceClient notificationClient;
+    private final FinalScoreService finalScoreService;
     
     /**
      * Chấm điểm cho sinh viên
@@ -88,6 +91,9 @@ public class EvaluationService {
         
         // Lưu vào database
         ProjectEvaluation savedEvaluation = evaluationRepository.save(evaluation);
+
+        // Cập nhật điểm tổng kết trong cùng transaction
+        finalScoreService.refresh(savedEvaluation.getTopicId());
         
         log.info("Evaluation submitted successfully: {}", savedEvaluation.getEvaluationId());
         
@@ -169,124 +175,92 @@ public class EvaluationService {
     public List<EvaluationResponse> getEvaluatorTasks(Integer evaluatorId, LocalDate date, String scope) {
         log.info("Getting evaluator tasks for evaluatorId={}, date={}, scope={}", evaluatorId, date, scope);
 
-        
+        // 1) GVHD: chỉ lấy các StudentDefense đã xếp buổi mà giảng viên này hướng dẫn
+        var supervisorAssignments = studentDefenseRepository.findScheduledBySupervisorId(evaluatorId);
 
-        // Lấy tất cả student defenses với DefenseSession được fetch
-        var allStudentDefenses = studentDefenseRepository.findAllWithDefenseSession();
-        log.info("Total student defenses in database: {}", allStudentDefenses.size());
-        
-        // Debug: Log chi tiết từng student defense
-        for (var sd : allStudentDefenses) {
-            log.info("StudentDefense ID: {}, Student ID: {}, Topic ID: {}, Supervisor ID: {}, Session: {}, DefenseDate: {}", 
-                sd.getStudentDefenseId(),
-                sd.getStudentId(),
-                sd.getTopicId(),
-                sd.getSupervisorId(),
-                sd.getDefenseSession() != null ? sd.getDefenseSession().getSessionId() : "NULL",
-                sd.getDefenseSession() != null ? sd.getDefenseSession().getDefenseDate() : "NULL");
+        // 2) Thành viên hội đồng: sessionId -> các vai trò của giảng viên trong buổi đó
+        Map<Integer, Set<DefenseCommittee.CommitteeRole>> rolesBySession = new HashMap<>();
+        for (var dc : defenseCommitteeRepository.findByLecturerId(evaluatorId)) {
+            if (dc.getDefenseSession() != null && dc.getRole() != null) {
+                rolesBySession.computeIfAbsent(dc.getDefenseSession().getSessionId(), k -> EnumSet.noneOf(DefenseCommittee.CommitteeRole.class))
+                        .add(dc.getRole());
+            }
         }
-
-        // 1) GVHD: sinh viên do giảng viên này hướng dẫn
-        var supervisorAssignments = allStudentDefenses.stream()
-                .filter(sd -> sd.getSupervisorId() != null && sd.getSupervisorId().equals(evaluatorId))
-                .filter(sd -> sd.getDefenseSession() != null)
-                .collect(Collectors.toList());
-        log.info("Role-based: {} supervisor assignments for evaluatorId={}", supervisorAssignments.size(), evaluatorId);
-        
-        // Debug: Log chi tiết supervisor assignments
-        for (var sa : supervisorAssignments) {
-            log.info("DEBUG: Supervisor assignment topicId={}, studentId={}, supervisorId={}, sessionId={}", 
-                sa.getTopicId(), sa.getStudentId(), sa.getSupervisorId(), 
-                sa.getDefenseSession() != null ? sa.getDefenseSession().getSessionId() : "NULL");
+        var committeeAssignments = rolesBySession.isEmpty()
+                ? List.<StudentDefense>of()
+                : studentDefenseRepository.findBySessionIdsWithSession(rolesBySession.keySet());
+        log.debug("Role-based: {} supervisor assignments, {} committee sessions, {} committee/reviewer assignments for evaluatorId={}",
+                supervisorAssignments.size(), rolesBySession.size(), committeeAssignments.size(), evaluatorId);
+
+        // 3) Xác định (StudentDefense, loại chấm) cho từng nhiệm vụ, loại trùng theo topicId + evaluationType
+        var pending = new LinkedHashMap<String, Map.Entry<StudentDefense, ProjectEvaluation.EvaluationType>>();
+        for (var sd : supervisorAssignments) {
+            pending.putIfAbsent(sd.getTopicId() + ":" + ProjectEvaluation.EvaluationType.SUPERVISOR,
+                    Map.entry(sd, ProjectEvaluation.EvaluationType.SUPERVISOR));
+        }
+        for (var sd : committeeAssignments) {
+            var roles = rolesBySession.getOrDefault(sd.getDefenseSession().getSessionId(), Set.of());
+            if (roles.contains(DefenseCommittee.CommitteeRole.CHAIRMAN)
+                    || roles.contains(DefenseCommittee.CommitteeRole.SECRETARY)
+                    || roles.contains(DefenseCommittee.CommitteeRole.MEMBER)) {
+                pending.putIfAbsent(sd.getTopicId() + ":" + ProjectEvaluation.EvaluationType.COMMITTEE,
+                        Map.entry(sd, ProjectEvaluation.EvaluationType.COMMITTEE));
+            }
+        }
+        for (var sd : committeeAssignments) {
+            var roles = rolesBySession.getOrDefault(sd.getDefenseSession().getSessionId(), Set.of());
+            if (roles.contains(DefenseCommittee.CommitteeRole.REVIEWER)) {
+                pending.putIfAbsent(sd.getTopicId() + ":" + ProjectEvaluation.EvaluationType.REVIEWER,
+                        Map.entry(sd, ProjectEvaluation.EvaluationType.REVIEWER));
+            }
+        }
+        if (pending.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        // 2) Thành viên hội đồng: lấy các session mà giảng viên thuộc hội đồng
-        var allCommittees = defenseCommitteeRepository.findByLecturerId(evaluatorId);
-        log.info("DEBUG: All committees for evaluatorId={}: {}", evaluatorId, allCommittees.stream()
-                .map(dc -> "sessionId=" + (dc.getDefenseSession() != null ? dc.getDefenseSession().getSessionId() : "NULL") + 
-                           ", role=" + dc.getRole())
-                .collect(Collectors.toList()));
-        
-        var committeeSessions = allCommittees.stream()
-                .map(DefenseCommittee::getDefenseSession)
-                .filter(java.util.Objects::nonNull)
+        // 4) Nạp một lần: đánh giá đã có của giảng viên và thông tin đề tài từ thesis-service
+        Set<Integer> topicIds = pending.values().stream()
+                .map(e -> e.getKey().getTopicId())
                 .collect(Collectors.toSet());
-        log.info("Role-based: {} committee sessions for evaluatorId={}", committeeSessions.size(), evaluatorId);
-
-        log.info("DEBUG: All student defenses: {}", allStudentDefenses.stream()
-                .map(sd -> "topicId=" + sd.getTopicId() + 
-                           ", sessionId=" + (sd.getDefenseSession() != null ? sd.getDefenseSession().getSessionId() : "NULL"))
-                .collect(Collectors.toList()));
-        
-        var committeeAssignments = allStudentDefenses.stream()
-                .filter(sd -> sd.getDefenseSession() != null &&
-                        committeeSessions.stream().anyMatch(cs -> cs.getSessionId().equals(sd.getDefenseSession().getSessionId())))
-                .collect(Collectors.toList());
-        log.info("Role-based: {} committee/reviewer assignments for evaluatorId={}", committeeAssignments.size(), evaluatorId);
-
-        // 3. Tạo tasks cho từng loại
-        var supervisorTasks = supervisorAssignments.stream()
-                .map(sd -> buildTaskFromStudentDefense(sd, evaluatorId, ProjectEvaluation.EvaluationType.SUPERVISOR))
-                .collect(Collectors.toList());
-
-        var committeeTasks = new ArrayList<EvaluationResponse>();
-        var reviewerTasks = new ArrayList<EvaluationResponse>();
-        
-        log.info("DEBUG: Creating tasks for {} assignments", committeeAssignments.size());
-        
-        for (var assignment : committeeAssignments) {
-            // Lấy TẤT CẢ roles của evaluator trong session này
-            var rolesInSession = allCommittees.stream()
-                    .filter(dc -> dc.getDefenseSession() != null &&
-                            dc.getDefenseSession().getSessionId().equals(assignment.getDefenseSession().getSessionId()) &&
-                            dc.getLecturerId().equals(evaluatorId))
-                    .map(DefenseCommittee::getRole)
-                    .collect(Collectors.toSet());
-
-            log.info("DEBUG: Assignment topicId={}, sessionId={}, roles={}, evaluatorId={}", 
-                assignment.getTopicId(), 
-                assignment.getDefenseSession().getSessionId(), 
-                rolesInSession, 
-                evaluatorId);
+        Map<String, ProjectEvaluation> latestEvaluations = new HashMap<>();
+        for (var pe : evaluationRepository.findByEvaluatorIdAndTopicIdInOrderByEvaluatedAtDesc(evaluatorId, topicIds)) {
+            latestEvaluations.putIfAbsent(pe.getTopicId() + ":" + pe.getEvaluationType(), pe);
+        }
+        Map<Integer, String> topicTitles = loadTopicTitles(pending.entrySet().stream()
+                .filter(e -> !latestEvaluations.containsKey(e.getKey()))
+                .map(e -> e.getValue().getKey().getTopicId())
+                .collect(Collectors.toSet()));
+
+        List<EvaluationResponse> result = new ArrayList<>(pending.size());
+        pending.forEach((key, task) -> {
+            ProjectEvaluation existing = latestEvaluations.get(key);
+            result.add(existing != null
+                    ? convertToResponse(existing)
+                    : buildTaskFromStudentDefense(task.getKey(), evaluatorId, task.getValue(), topicTitles));
+        });
+        log.info("Returning {} total tasks for evaluatorId={}", result.size(), evaluatorId);
+        return result;
+    }
 
-            // Tạo task cho từng role
-            for (var role : rolesInSession) {
-                if (role == DefenseCommittee.CommitteeRole.REVIEWER) {
-                    log.info("DEBUG: Creating REVIEWER task for topicId={}", assignment.getTopicId());
-                    reviewerTasks.add(buildTaskFromStudentDefense(assignment, evaluatorId, ProjectEvaluation.EvaluationType.REVIEWER));
-                } else if (role == DefenseCommittee.CommitteeRole.MEMBER ||
-                           role == DefenseCommittee.CommitteeRole.CHAIRMAN ||
-                           role == DefenseCommittee.CommitteeRole.SECRETARY) {
-                    log.info("DEBUG: Creating COMMITTEE task for topicId={}", assignment.getTopicId());
-                    committeeTasks.add(buildTaskFromStudentDefense(assignment, evaluatorId, ProjectEvaluation.EvaluationType.COMMITTEE));
+    private Map<Integer, String> loadTopicTitles(Set<Integer> topicIds) {
+        Map<Integer, String> titles = new HashMap<>();
+        if (topicIds.isEmpty()) {
+            return titles;
+        }
+        try {
+            var topics = thesisServiceClient.getTopicsByIds(new ArrayList<>(topicIds));
+            if (topics != null) {
+                for (var topic : topics) {
+                    if (topic != null && topic.get("topicId") instanceof Number id && topic.get("title") != null) {
+                        titles.put(id.intValue(), topic.get("title").toString());
+                    }
                 }
             }
+        } catch (Exception e) {
+            log.warn("Could not fetch topic info for {} topics: {}", topicIds.size(), e.getMessage());
+            // Fallback to existing data
         }
-
-        // 4. Gộp tất cả tasks và loại trùng (topicId + evaluationType)
-        var all = new java.util.LinkedHashMap<String, EvaluationResponse>();
-        java.util.function.Consumer<EvaluationResponse> put = er -> {
-            String key = er.getTopicId() + ":" + er.getEvaluationType();
-            all.putIfAbsent(key, er);
-        };
-        
-        log.info("DEBUG: Before deduplication - supervisorTasks={}, committeeTasks={}, reviewerTasks={}", 
-            supervisorTasks.size(), committeeTasks.size(), reviewerTasks.size());
-        
-        supervisorTasks.forEach(put);
-        committeeTasks.forEach(put);
-        reviewerTasks.forEach(put);
-
-        var result = all.values().stream().collect(Collectors.toList());
-        log.info("Returning {} total tasks for evaluatorId={}", result.size(), evaluatorId);
-        
-        // Debug: Log final tasks
-        for (var task : result) {
-            log.info("DEBUG: Final task topicId={}, evaluationType={}, studentId={}", 
-                task.getTopicId(), task.getEvaluationType(), task.getStudentId());
-        }
-        
-        return result;
+        return titles;
     }
 
     // Overload để tương thích khi không truyền scope (mặc định today)
@@ -327,21 +301,11 @@ public class EvaluationService {
     }
 
     private EvaluationResponse buildTaskFromStudentDefense(
-            com.phenikaa.evalservice.entity.StudentDefense sd,
+            StudentDefense sd,
             Integer evaluatorId,
-            ProjectEvaluation.EvaluationType type
+            ProjectEvaluation.EvaluationType type,
+            Map<Integer, String> topicTitles
     ) {
-        // Kiểm tra đã có bản ghi chấm chưa (lấy bản ghi mới nhất nếu có)
-        var existingList = evaluationRepository
-                .findAllByTopicIdAndEvaluatorIdAndEvaluationTypeOrderByEvaluatedAtDesc(
-                        sd.getTopicId(), evaluatorId, type
-                );
-
-        if (!existingList.isEmpty()) {
-            // Trả về response của bản ghi đã có
-            return convertToResponse(existingList.get(0));
-        }
-
         // Tạo một EvaluationResponse ở trạng thái nhiệm vụ PENDING
         EvaluationResponse resp = new EvaluationResponse();
         resp.setEvaluationId(null);
@@ -351,20 +315,9 @@ public class EvaluationService {
         resp.setEvaluationType(type);
         resp.setEvaluationStatus(ProjectEvaluation.EvaluationStatus.PENDING);
         
-        // Lấy thông tin từ StudentDefense trước
+        // Lấy thông tin từ StudentDefense, ưu tiên tên đề tài mới nhất từ thesis-service
         resp.setStudentName(sd.getStudentName());
-        resp.setTopicTitle(sd.getTopicTitle());
-        
-        // Cố gắng lấy thông tin đầy đủ từ thesis-service
-        try {
-            var topicInfo = thesisServiceClient.getTopicById(sd.getTopicId());
-            if (topicInfo != null && topicInfo.get("title") != null) {
-                resp.setTopicTitle(topicInfo.get("title").toString());
-            }
-        } catch (Exception e) {
-            log.warn("Could not fetch topic info for topicId {}: {}", sd.getTopicId(), e.getMessage());
-            // Fallback to existing data
-        }
+        resp.setTopicTitle(topicTitles.getOrDefault(sd.getTopicId(), sd.getTopicTitle()));
         
         // Set defense date and time from defense session
         if (sd.getDefenseSession() != null) {
@@ -377,11 +330,11 @@ public class EvaluationService {
     
     /**
      * Tính điểm trung bình cuối cùng theo công thức: (GVHD x1 + GVPB x2 + HĐ x1) / 4
-     * Trong đó HĐ chỉ được tính khi có đủ 3 thành viên hội đồng chấm điểm
+     * Trong đó HĐ chỉ được tính khi có đủ 3 thành viên hội đồng chấm điểm.
+     * Điểm đọc từ bảng final_score (được cập nhật khi chấm), kèm chi tiết các đánh giá.
      */
+    @Transactional(readOnly = true)
     public FinalScoreResponse calculateFinalScore(Integer topicId) {
-        log.info("Calculating final score for topic: {}", topicId);
-        
         // Lấy tất cả đánh giá của topic
         List<ProjectEvaluation> evaluations = evaluationRepository.findByTopicId(topicId);
         
@@ -390,105 +343,10 @@ public class EvaluationService {
             return null;
         }
         
-        // Tính điểm trung bình cho từng loại đánh giá
-        Double supervisorScore = getAverageScoreByType(evaluations, ProjectEvaluation.EvaluationType.SUPERVISOR);
-        Double reviewerScore = getAverageScoreByType(evaluations, ProjectEvaluation.EvaluationType.REVIEWER);
-        Double committeeScore = getCommitteeScoreWithTop3Members(evaluations);
-        
-        // Tính điểm cuối cùng: (GVHD x1 + GVPB x2 + HĐ x1) / 4
-        Double finalScore = null;
-        String status = "INCOMPLETE";
-        
-        if (supervisorScore != null && reviewerScore != null && committeeScore != null) {
-            finalScore = (supervisorScore * 1 + reviewerScore * 2 + committeeScore * 1) / 4.0;
-            status = "COMPLETED";
-        } else if (supervisorScore != null || reviewerScore != null || committeeScore != null) {
-            status = "INCOMPLETE";
-        } else {
-            status = "PENDING";
-        }
-        
-        // Tạo response
-        FinalScoreResponse response = new FinalScoreResponse();
-        response.setTopicId(topicId);
-        response.setSupervisorScore(supervisorScore != null ? supervisorScore.floatValue() : null);
-        response.setReviewerScore(reviewerScore != null ? reviewerScore.floatValue() : null);
-        response.setCommitteeScore(committeeScore != null ? committeeScore.floatValue() : null);
-        response.setFinalScore(finalScore != null ? finalScore.floatValue() : null);
-        response.setStatus(status);
-        response.setEvaluations(evaluations.stream()
+        var finalScore = finalScoreService.getOrCompute(topicId, evaluations);
+        return finalScoreService.toResponse(finalScore, evaluations.stream()
                 .map(this::convertToResponse)
                 .collect(Collectors.toList()));
-        
-        log.info("Final score calculated for topic {}: {}", topicId, finalScore);
-
-        // Gửi thông báo cho sinh viên nếu đã có điểm cuối cùng
-        try {
-            if (finalScore != null) {
-                Integer studentId = evaluations.stream()
-                        .map(ProjectEvaluation::getStudentId)
-                        .filter(java.util.Objects::nonNull)
-                        .findFirst()
-                        .orElse(null);
-                if (studentId != null) {
-                    String message = String.format("Điểm tổng kết đồ án của bạn: %.2f", finalScore);
-                    java.util.Map<String, Object> body = new java.util.HashMap<>();
-                    body.put("senderId", 0);
-                    body.put("receiverId", studentId);
-                    body.put("message", message);
-                    body.put("type", "FINAL_SCORE");
-                    notificationClient.sendNotification(body);
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Could not send final score notification: {}", e.getMessage());
-        }
-
-        return response;
-    }
-    
-    /**
-     * Tính điểm trung bình theo loại đánh giá
-     */
-    private Double getAverageScoreByType(List<ProjectEvaluation> evaluations, ProjectEvaluation.EvaluationType type) {
-        List<ProjectEvaluation> typeEvaluations = evaluations.stream()
-                .filter(e -> e.getEvaluationType() == type && e.getTotalScore() != null)
-                .collect(Collectors.toList());
-        
-        if (typeEvaluations.isEmpty()) {
-            return null;
-        }
-        
-        double sum = typeEvaluations.stream()
-                .mapToDouble(ProjectEvaluation::getTotalScore)
-                .sum();
-        
-        return sum / typeEvaluations.size();
-    }
-    
-    /**
-     * Tính điểm hội đồng: chỉ tính khi có đủ 3 thành viên hội đồng chấm điểm
-     * Điểm hội đồng = (điểm thành viên 1 + điểm thành viên 2 + điểm thành viên 3) ÷ 3
-     */
-    private Double getCommitteeScoreWithTop3Members(List<ProjectEvaluation> evaluations) {
-        List<ProjectEvaluation> committeeEvaluations = evaluations.stream()
-                .filter(e -> e.getEvaluationType() == ProjectEvaluation.EvaluationType.COMMITTEE && e.getTotalScore() != null)
-                .collect(Collectors.toList());
-        
-        // Chỉ tính điểm hội đồng khi có đủ 3 thành viên chấm điểm
-        if (committeeEvaluations.size() < 3) {
-            log.info("Committee score not calculated: need 3 members, got {}", committeeEvaluations.size());
-            return null;
-        }
-        
-        // Tính trung bình điểm của 3 thành viên hội đồng
-        double averageScore = committeeEvaluations.stream()
-                .mapToDouble(ProjectEvaluation::getTotalScore)
-                .average()
-                .orElse(0.0);
-        
-        log.info("Committee score calculated: {} members, average: {}", committeeEvaluations.size(), averageScore);
-        return averageScore;
     }
     
     /**
@@ -630,14 +488,15 @@ public class EvaluationService {
             
             // Lấy các đánh giá hiện có
             var evaluations = evaluationRepository.findByTopicId(topicId);
-            result.put("evaluations", evaluations.stream()
+            var evaluationResponses = evaluations.stream()
                     .map(this::convertToResponse)
-                    .collect(Collectors.toList()));
+                    .collect(Collectors.toList());
+            result.put("evaluations", evaluationResponses);
             
             // Lấy điểm cuối cùng nếu có
-            var finalScore = calculateFinalScore(topicId);
-            if (finalScore != null) {
-                result.put("finalScore", finalScore);
+            if (!evaluations.isEmpty()) {
+                var finalScore = finalScoreService.getOrCompute(topicId, evaluations);
+                result.put("finalScore", finalScoreService.toResponse(finalScore, evaluationResponses));
             }
             
         } catch (Exception e) {
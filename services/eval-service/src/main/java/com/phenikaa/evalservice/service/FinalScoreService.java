@@ -0,0 +1,344 @@
+package com.phenikaa.evalservice.service;
+
+import com.phenikaa.evalservice.client.NotificationServiceClient;
+import com.phenikaa.evalservice.client.ThesisServiceClient;
+import com.phenikaa.evalservice.dto.response.EvaluationResponse;
+import com.phenikaa.evalservice.dto.response.FinalScoreConsistencyResponse;
+import com.phenikaa.evalservice.dto.response.FinalScoreResponse;
+import com.phenikaa.evalservice.entity.FinalScore;
+import com.phenikaa.evalservice.entity.ProjectEvaluation;
+import com.phenikaa.evalservice.repository.FinalScoreRepository;
+import com.phenikaa.evalservice.repository.ProjectEvaluationRepository;
+import com.phenikaa.evalservice.repository.StudentDefenseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Quản lý bảng điểm tổng kết final_score.
+ * Điểm được tính lại trong cùng transaction với mỗi lần chấm, nên đọc điểm chỉ cần một truy vấn
+ * thay vì nạp lại toàn bộ ProjectEvaluation của đề tài.
+ * Chỉ lần chấm (refresh) và đối soát (checkConsistency) ghi vào bảng; các hàm đọc không ghi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class FinalScoreService {
+
+    // Số id tối đa trong một mệnh đề IN (SQL Server giới hạn 2100 tham số mỗi câu lệnh)
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final FinalScoreRepository finalScoreRepository;
+    private final StudentDefenseRepository studentDefenseRepository;
+    private final ProjectEvaluationRepository evaluationRepository;
+    private final ThesisServiceClient thesisServiceClient;
+    private final NotificationServiceClient notificationClient;
+
+    /**
+     * Tính lại và lưu điểm tổng kết của đề tài; gọi sau khi lưu ProjectEvaluation trong cùng transaction.
+     * Gửi thông báo cho sinh viên khi điểm cuối cùng lần đầu có hoặc thay đổi, sau khi transaction commit
+     * (không gọi service khác khi còn giữ khóa dòng final_score).
+     */
+    public FinalScore refresh(Integer topicId) {
+        // Dòng phải tồn tại trước khi khoá: khoá trên dòng chưa có không chặn được lần chấm đồng thời
+        finalScoreRepository.insertIfAbsent(topicId, LocalDateTime.now());
+        FinalScore current = finalScoreRepository.findForUpdate(topicId).orElse(null);
+        Float previousFinal = current != null ? current.getFinalScore() : null;
+
+        FinalScore computed = compute(topicId, evaluationRepository.findByTopicId(topicId));
+        FinalScore saved = finalScoreRepository.save(copyInto(current, computed));
+
+        if (saved.getFinalScore() != null && !saved.getFinalScore().equals(previousFinal)) {
+            Integer studentId = saved.getStudentId();
+            Float finalScore = saved.getFinalScore();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        notifyStudent(studentId, finalScore);
+                    }
+                });
+            } else {
+                notifyStudent(studentId, finalScore);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Điểm tổng kết của đề tài; nếu chưa có dòng final_score (dữ liệu cũ) thì tính từ các đánh giá đã nạp
+     * mà không lưu, dòng sẽ được tạo ở lần chấm tiếp theo hoặc khi đối soát
+     */
+    @Transactional(readOnly = true)
+    public FinalScore getOrCompute(Integer topicId, List<ProjectEvaluation> evaluations) {
+        return finalScoreRepository.findById(topicId)
+                .orElseGet(() -> compute(topicId, evaluations));
+    }
+
+    /**
+     * Điểm tổng kết của đề tài, không kèm chi tiết đánh giá; null nếu đề tài chưa có đánh giá nào
+     */
+    @Transactional(readOnly = true)
+    public FinalScoreResponse getFinalScore(Integer topicId) {
+        FinalScore fs = finalScoreRepository.findById(topicId).orElse(null);
+        if (fs == null) {
+            List<ProjectEvaluation> evaluations = evaluationRepository.findByTopicId(topicId);
+            if (evaluations.isEmpty()) {
+                return null;
+            }
+            fs = compute(topicId, evaluations);
+        }
+        return toResponse(fs, null);
+    }
+
+    /**
+     * Điểm tổng kết của tất cả sinh viên trong buổi bảo vệ, theo thứ tự bảo vệ
+     */
+    @Transactional(readOnly = true)
+    public List<FinalScoreResponse> getFinalScoresBySession(Integer sessionId) {
+        return toResponses(findOrCompute(studentDefenseRepository.findTopicIdsBySessionId(sessionId)));
+    }
+
+    /**
+     * Điểm tổng kết của tất cả đề tài trong đợt đăng ký: một lần gọi thesis-service lấy danh sách đề tài,
+     * đọc điểm theo từng lô
+     */
+    @Transactional(readOnly = true)
+    public List<FinalScoreResponse> getFinalScoresByPeriod(Integer periodId) {
+        return toResponses(findOrCompute(thesisServiceClient.getTopicIdsByPeriod(periodId)));
+    }
+
+    /**
+     * So sánh bảng final_score với kết quả tính lại từ toàn bộ ProjectEvaluation.
+     * repair = true thì ghi đè các dòng sai/thiếu và xoá các dòng không còn đánh giá.
+     */
+    public FinalScoreConsistencyResponse checkConsistency(boolean repair) {
+        Map<Integer, List<ProjectEvaluation>> evaluationsByTopic = evaluationRepository.findAll().stream()
+                .filter(e -> e.getTopicId() != null)
+                .collect(Collectors.groupingBy(ProjectEvaluation::getTopicId, TreeMap::new, Collectors.toList()));
+        Map<Integer, FinalScore> stored = new HashMap<>();
+        for (FinalScore fs : finalScoreRepository.findAll()) {
+            stored.put(fs.getTopicId(), fs);
+        }
+
+        List<Integer> mismatched = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        List<FinalScore> toSave = new ArrayList<>();
+        evaluationsByTopic.forEach((topicId, evaluations) -> {
+            FinalScore expected = compute(topicId, evaluations);
+            FinalScore actual = stored.remove(topicId);
+            if (actual == null) {
+                missing.add(topicId);
+                toSave.add(expected);
+            } else if (!sameScores(actual, expected)) {
+                mismatched.add(topicId);
+                toSave.add(copyInto(actual, expected));
+            }
+        });
+        List<Integer> orphans = stored.keySet().stream().sorted().collect(Collectors.toList());
+
+        if (!mismatched.isEmpty() || !missing.isEmpty() || !orphans.isEmpty()) {
+            log.warn("Final score projection drift: {} mismatched, {} missing, {} orphan (repair={})",
+                    mismatched.size(), missing.size(), orphans.size(), repair);
+        }
+        if (repair) {
+            finalScoreRepository.saveAll(toSave);
+            finalScoreRepository.deleteAllById(orphans);
+        }
+
+        return FinalScoreConsistencyResponse.builder()
+                .checkedTopics(evaluationsByTopic.size())
+                .mismatchedTopicIds(mismatched)
+                .missingTopicIds(missing)
+                .orphanTopicIds(orphans)
+                .repaired(repair)
+                .build();
+    }
+
+    /**
+     * Điểm tổng kết của các đề tài theo thứ tự topicIds. Đề tài chưa có dòng final_score (chấm trước khi có bảng)
+     * được tính từ các đánh giá mà không lưu; đề tài chưa có đánh giá nào thì bỏ qua.
+     * IN được chia lô để không vượt giới hạn 2100 tham số của SQL Server.
+     */
+    private List<FinalScore> findOrCompute(List<Integer> requestedTopicIds) {
+        List<Integer> topicIds = requestedTopicIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (topicIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, FinalScore> byTopic = new HashMap<>();
+        for (List<Integer> chunk : chunks(topicIds)) {
+            finalScoreRepository.findByTopicIdIn(chunk).forEach(fs -> byTopic.put(fs.getTopicId(), fs));
+        }
+        List<Integer> missing = topicIds.stream()
+                .filter(topicId -> !byTopic.containsKey(topicId))
+                .collect(Collectors.toList());
+        for (List<Integer> chunk : chunks(missing)) {
+            evaluationRepository.findByTopicIdIn(chunk).stream()
+                    .collect(Collectors.groupingBy(ProjectEvaluation::getTopicId))
+                    .forEach((topicId, evaluations) -> byTopic.put(topicId, compute(topicId, evaluations)));
+        }
+        return topicIds.stream()
+                .map(byTopic::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    private List<FinalScoreResponse> toResponses(List<FinalScore> scores) {
+        return scores.stream()
+                .map(fs -> toResponse(fs, null))
+                .collect(Collectors.toList());
+    }
+
+    public FinalScoreResponse toResponse(FinalScore fs, List<EvaluationResponse> evaluations) {
+        FinalScoreResponse response = new FinalScoreResponse();
+        response.setTopicId(fs.getTopicId());
+        response.setStudentId(fs.getStudentId());
+        response.setSupervisorScore(fs.getSupervisorScore());
+        response.setReviewerScore(fs.getReviewerScore());
+        response.setCommitteeScore(fs.getCommitteeScore());
+        response.setFinalScore(fs.getFinalScore());
+        response.setStatus(fs.getStatus());
+        response.setEvaluations(evaluations);
+        return response;
+    }
+
+    /**
+     * Tính điểm trung bình cuối cùng theo công thức: (GVHD x1 + GVPB x2 + HĐ x1) / 4
+     * Trong đó HĐ chỉ được tính khi có đủ 3 thành viên hội đồng chấm điểm
+     */
+    static FinalScore compute(Integer topicId, List<ProjectEvaluation> evaluations) {
+        Double supervisorScore = getAverageScoreByType(evaluations, ProjectEvaluation.EvaluationType.SUPERVISOR);
+        Double reviewerScore = getAverageScoreByType(evaluations, ProjectEvaluation.EvaluationType.REVIEWER);
+        Double committeeScore = getCommitteeScoreWithTop3Members(evaluations);
+
+        Double finalScore = null;
+        String status;
+        if (supervisorScore != null && reviewerScore != null && committeeScore != null) {
+            finalScore = (supervisorScore * 1 + reviewerScore * 2 + committeeScore * 1) / 4.0;
+            status = "COMPLETED";
+        } else if (supervisorScore != null || reviewerScore != null || committeeScore != null) {
+            status = "INCOMPLETE";
+        } else {
+            status = "PENDING";
+        }
+
+        return FinalScore.builder()
+                .topicId(topicId)
+                .studentId(evaluations.stream()
+                        .map(ProjectEvaluation::getStudentId)
+                        .filter(Objects::nonNull)
+                        .findFirst()
+                        .orElse(null))
+                .supervisorScore(supervisorScore != null ? supervisorScore.floatValue() : null)
+                .reviewerScore(reviewerScore != null ? reviewerScore.floatValue() : null)
+                .committeeScore(committeeScore != null ? committeeScore.floatValue() : null)
+                .finalScore(finalScore != null ? finalScore.floatValue() : null)
+                .status(status)
+                .evaluationCount(evaluations.size())
+                .build();
+    }
+
+    /**
+     * Tính điểm trung bình theo loại đánh giá
+     */
+    private static Double getAverageScoreByType(List<ProjectEvaluation> evaluations, ProjectEvaluation.EvaluationType type) {
+        List<ProjectEvaluation> typeEvaluations = evaluations.stream()
+                .filter(e -> e.getEvaluationType() == type && e.getTotalScore() != null)
+                .collect(Collectors.toList());
+
+        if (typeEvaluations.isEmpty()) {
+            return null;
+        }
+
+        double sum = typeEvaluations.stream()
+                .mapToDouble(ProjectEvaluation::getTotalScore)
+                .sum();
+
+        return sum / typeEvaluations.size();
+    }
+
+    /**
+     * Tính điểm hội đồng: chỉ tính khi có đủ 3 thành viên hội đồng chấm điểm
+     * Điểm hội đồng = (điểm thành viên 1 + điểm thành viên 2 + điểm thành viên 3) ÷ 3
+     */
+    private static Double getCommitteeScoreWithTop3Members(List<ProjectEvaluation> evaluations) {
+        List<ProjectEvaluation> committeeEvaluations = evaluations.stream()
+                .filter(e -> e.getEvaluationType() == ProjectEvaluation.EvaluationType.COMMITTEE && e.getTotalScore() != null)
+                .collect(Collectors.toList());
+
+        // Chỉ tính điểm hội đồng khi có đủ 3 thành viên chấm điểm
+        if (committeeEvaluations.size() < 3) {
+            return null;
+        }
+
+        return committeeEvaluations.stream()
+                .mapToDouble(ProjectEvaluation::getTotalScore)
+                .average()
+                .orElse(0.0);
+    }
+
+    private static FinalScore copyInto(FinalScore target, FinalScore source) {
+        if (target == null) {
+            return source;
+        }
+        target.setStudentId(source.getStudentId());
+        target.setSupervisorScore(source.getSupervisorScore());
+        target.setReviewerScore(source.getReviewerScore());
+        target.setCommitteeScore(source.getCommitteeScore());
+        target.setFinalScore(source.getFinalScore());
+        target.setStatus(source.getStatus());
+        target.setEvaluationCount(source.getEvaluationCount());
+        return target;
+    }
+
+    private static boolean sameScores(FinalScore a, FinalScore b) {
+        return Objects.equals(a.getStudentId(), b.getStudentId())
+                && Objects.equals(a.getSupervisorScore(), b.getSupervisorScore())
+                && Objects.equals(a.getReviewerScore(), b.getReviewerScore())
+                && Objects.equals(a.getCommitteeScore(), b.getCommitteeScore())
+                && Objects.equals(a.getFinalScore(), b.getFinalScore())
+                && Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getEvaluationCount(), b.getEvaluationCount());
+    }
+
+    private void notifyStudent(Integer studentId, Float finalScore) {
+        if (studentId == null) {
+            return;
+        }
+        try {
+            String message = String.format("Điểm tổng kết đồ án của bạn: %.2f", finalScore);
+            Map<String, Object> body = new HashMap<>();
+            body.put("senderId", 0);
+            body.put("receiverId", studentId);
+            body.put("message", message);
+            body.put("type", "FINAL_SCORE");
+            notificationClient.sendNotification(body);
+        } catch (Exception e) {
+            log.warn("Could not send final score notification: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.phenikaa.evalservice.service;
+
+import com.itextpdf.html2pdf.ConverterProperties;
+import com.itextpdf.html2pdf.HtmlConverter;
+import com.itextpdf.layout.font.FontProvider;
+import com.itextpdf.layout.font.FontSet;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Chuyển HTML sang PDF với bộ font được nạp một lần khi khởi động.
+ * FontSet dùng chung cho mọi request; FontProvider/ConverterProperties được tạo mới cho từng PDF
+ * vì chúng giữ cache font theo từng document và không thread-safe.
+ */
+@Component
+@Slf4j
+public class PDFRenderingEngine {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean loadSystemFonts;
+    private final List<String> fontDirectories;
+
+    private volatile FontSet fontSet;
+    private Timer renderTimer;
+
+    public PDFRenderingEngine(MeterRegistry meterRegistry,
+                              @Value("${pdf.fonts.load-system-fonts:true}") boolean loadSystemFonts,
+                              @Value("${pdf.fonts.directories:C:/Windows/Fonts}") List<String> fontDirectories) {
+        this.meterRegistry = meterRegistry;
+        this.loadSystemFonts = loadSystemFonts;
+        this.fontDirectories = fontDirectories;
+    }
+
+    @PostConstruct
+    public void init() {
+        long start = System.nanoTime();
+
+        FontProvider loader = new FontProvider();
+        if (loadSystemFonts) {
+            try {
+                loader.addSystemFonts();
+            } catch (Exception e) {
+                log.warn("Không thể nạp system fonts: {}", e.getMessage());
+            }
+        }
+        for (String directory : fontDirectories) {
+            try {
+                // Thư mục không tồn tại thì addDirectory không làm gì
+                loader.addDirectory(directory);
+            } catch (Exception e) {
+                log.warn("Không thể nạp font từ thư mục {}: {}", directory, e.getMessage());
+            }
+        }
+        this.fontSet = loader.getFontSet();
+
+        this.renderTimer = Timer.builder("eval.pdf.render")
+                .description("Thời gian chuyển HTML sang PDF")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("eval.pdf.fonts.loaded", this, engine -> engine.fontSet.size())
+                .register(meterRegistry);
+
+        log.info("Loaded {} fonts for PDF rendering in {} ms",
+                fontSet.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public byte[] render(String htmlContent) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        render(htmlContent, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    public void render(String htmlContent, OutputStream outputStream) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            HtmlConverter.convertToPdf(htmlContent, outputStream, newConverterProperties());
+        } finally {
+            sample.stop(renderTimer);
+        }
+    }
+
+    private ConverterProperties newConverterProperties() {
+        ConverterProperties props = new ConverterProperties();
+        props.setFontProvider(new FontProvider(fontSet));
+        props.setCharset(StandardCharsets.UTF_8.name());
+        return props;
+    }
+}
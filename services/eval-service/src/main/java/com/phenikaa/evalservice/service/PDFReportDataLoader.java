@@ -0,0 +1,123 @@
+package com.phenikaa.evalservice.service;
+
+import com.phenikaa.evalservice.client.ProfileServiceClient;
+import com.phenikaa.evalservice.client.ThesisServiceClient;
+import com.phenikaa.evalservice.entity.ProjectEvaluation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Lấy trước toàn bộ dữ liệu từ service khác mà một PDF tổng hợp đánh giá cần:
+ * profile sinh viên, thông tin đề tài và profile của các giảng viên chấm (gộp id trùng).
+ * Các lời gọi chạy song song trong một đợt, kết quả là {@link PDFReportData} không đổi.
+ */
+@Component
+@Slf4j
+public class PDFReportDataLoader {
+
+    private final ProfileServiceClient profileServiceClient;
+    private final ThesisServiceClient thesisServiceClient;
+    private final Executor fetchPool;
+
+    public PDFReportDataLoader(ProfileServiceClient profileServiceClient,
+                               ThesisServiceClient thesisServiceClient,
+                               @Qualifier("pdfPrefetchExecutor") Executor fetchPool) {
+        this.profileServiceClient = profileServiceClient;
+        this.thesisServiceClient = thesisServiceClient;
+        this.fetchPool = fetchPool;
+    }
+
+    public PDFReportData load(Integer topicId, Integer studentId, List<ProjectEvaluation> evaluations) {
+        Set<Integer> evaluatorIds = new LinkedHashSet<>();
+        for (ProjectEvaluation evaluation : evaluations) {
+            evaluatorIds.add(evaluation.getEvaluatorId());
+        }
+        evaluatorIds.remove(null);
+
+        CompletableFuture<Map<String, Object>> studentProfile = fetch(
+                () -> profileServiceClient.getStudentProfile(studentId),
+                "student profile for studentId " + studentId);
+        CompletableFuture<Map<String, Object>> topicInfo = fetch(
+                () -> thesisServiceClient.getTopicById(topicId),
+                "topic info for topicId " + topicId);
+        CompletableFuture<List<Map<String, Object>>> teacherProfiles = evaluatorIds.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : fetch(() -> profileServiceClient.getTeacherProfilesByIds(new ArrayList<>(evaluatorIds)),
+                        "teacher profiles for evaluatorIds " + evaluatorIds);
+
+        CompletableFuture.allOf(studentProfile, topicInfo, teacherProfiles).join();
+
+        Map<Integer, Map<String, Object>> teachersById = new HashMap<>();
+        List<Map<String, Object>> teachers = teacherProfiles.join();
+        if (teachers != null) {
+            for (Map<String, Object> teacher : teachers) {
+                if (teacher != null && teacher.get("userId") instanceof Number userId) {
+                    teachersById.put(userId.intValue(), Map.copyOf(withoutNullValues(teacher)));
+                }
+            }
+        }
+
+        return new PDFReportData(
+                immutableOrEmpty(studentProfile.join()),
+                immutableOrEmpty(topicInfo.join()),
+                Map.copyOf(teachersById)
+        );
+    }
+
+    /**
+     * Chạy một lời gọi Feign trên pool prefetch; lỗi được log và trả về null để PDF dùng giá trị mặc định.
+     * Request context của thread gọi được pool chuyển sang để Feign dùng lại token của người dùng.
+     */
+    private <T> CompletableFuture<T> fetch(Supplier<T> call, String description) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.get();
+            } catch (Exception e) {
+                log.warn("Error fetching {}: {}", description, e.getMessage());
+                return null;
+            }
+        }, fetchPool);
+    }
+
+    private static Map<String, Object> immutableOrEmpty(Map<String, Object> map) {
+        return map == null ? Map.of() : Map.copyOf(withoutNullValues(map));
+    }
+
+    // Map.copyOf không chấp nhận value null
+    private static Map<String, Object> withoutNullValues(Map<String, Object> map) {
+        Map<String, Object> copy = new HashMap<>();
+        map.forEach((key, value) -> {
+            if (key != null && value != null) {
+                copy.put(key, value);
+            }
+        });
+        return copy;
+    }
+
+    /**
+     * Dữ liệu từ service khác cho một PDF. Map rỗng nghĩa là không lấy được dữ liệu.
+     */
+    public record PDFReportData(Map<String, Object> studentProfile,
+                                Map<String, Object> topicInfo,
+                                Map<Integer, Map<String, Object>> teacherProfiles) {
+
+        public Map<String, Object> teacherProfile(Integer evaluatorId) {
+            if (evaluatorId == null) {
+                return Map.of();
+            }
+            return Objects.requireNonNullElse(teacherProfiles.get(evaluatorId), Map.of());
+        }
+    }
+}
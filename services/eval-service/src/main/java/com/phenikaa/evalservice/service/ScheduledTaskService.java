@@ -2,109 +2,350 @@ package com.phenikaa.evalservice.service;
 
 import com.phenikaa.evalservice.entity.DefenseSession;
 import com.phenikaa.evalservice.repository.DefenseSessionRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Tự động chuyển trạng thái defense session theo thời gian.
+ * Mỗi buổi chưa kết thúc có một mốc chuyển trạng thái tiếp theo (5 ngày trước, giờ bắt đầu, giờ kết thúc, 19:00 ngày bảo vệ)
+ * nằm trong DelayQueue; một thread chờ đến đúng mốc, gom các buổi đến hạn cùng lúc và cập nhật trong một transaction.
+ * Hàng đợi được dựng lại từ DB khi khởi động và mỗi đêm để bắt các thay đổi không đi qua service này.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ScheduledTaskService {
 
+    private static final Set<DefenseSession.SessionStatus> ACTIVE_STATUSES = Set.of(
+            DefenseSession.SessionStatus.PLANNING,
+            DefenseSession.SessionStatus.SCHEDULED,
+            DefenseSession.SessionStatus.IN_PROGRESS);
+    private static final LocalTime COMPLETED_CUTOFF = LocalTime.of(19, 0);
+    // Lùi mốc một chút vì điều kiện chuyển trạng thái so sánh "sau" mốc (isAfter)
+    private static final long FIRE_DELAY_SECONDS = 1;
+
     private final DefenseSessionRepository defenseSessionRepository;
+    private final StudentScheduleService studentScheduleService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final DelayQueue<PendingTransition> queue = new DelayQueue<>();
+    private final Map<Integer, PendingTransition> pending = new ConcurrentHashMap<>();
+    private final Thread worker;
+
+    // Mọi thay đổi pending/queue đi qua lock này; khi đang dựng lại, các buổi được cập nhật qua service
+    // được ghi vào touchedDuringRebuild để snapshot cũ hơn không ghi đè mốc mới của chúng
+    private final Object registrationLock = new Object();
+    private Set<Integer> touchedDuringRebuild;
+
+    public ScheduledTaskService(DefenseSessionRepository defenseSessionRepository,
+                                StudentScheduleService studentScheduleService,
+                                PlatformTransactionManager transactionManager) {
+        this.defenseSessionRepository = defenseSessionRepository;
+        this.studentScheduleService = studentScheduleService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.worker = new Thread(this::runWorker, "session-status-scheduler");
+        this.worker.setDaemon(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        worker.start();
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Lỗi khi dựng lịch chuyển trạng thái lúc khởi động, sẽ thử lại ở lần dựng tiếp theo: ", e);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        worker.interrupt();
+    }
 
     /**
-     * Tự động cập nhật trạng thái defense session dựa trên ngày và thời gian
-     * Chạy mỗi giờ một lần
+     * Dựng lại hàng đợi từ DB: áp dụng ngay các chuyển trạng thái đã đến hạn và đăng ký mốc tiếp theo cho mọi buổi chưa kết thúc.
+     * Chạy mỗi đêm như lưới an toàn cho các buổi được sửa trực tiếp trong DB hoặc bởi instance khác.
      */
-    @Scheduled(cron = "0 0 * * * *") // Chạy vào đầu mỗi giờ (00:00, 01:00, 02:00, ...)
-    @Transactional
-    public void updateSessionStatuses() {
-        log.info("Bắt đầu cập nhật trạng thái defense sessions tự động");
-        
-        LocalDate today = LocalDate.now();
-        LocalTime currentTime = LocalTime.now();
-        LocalDateTime now = LocalDateTime.now();
-        
-        // Lấy tất cả sessions có trạng thái PLANNING hoặc SCHEDULED
-        List<DefenseSession> sessionsToUpdate = defenseSessionRepository
-                .findByStatusIn(Set.of(DefenseSession.SessionStatus.PLANNING, DefenseSession.SessionStatus.SCHEDULED));
-        
-        int updatedCount = 0;
-        
-        for (DefenseSession session : sessionsToUpdate) {
-            DefenseSession.SessionStatus newStatus = determineNewStatus(session, today, currentTime);
-            
-            if (newStatus != null && newStatus != session.getStatus()) {
-                session.setStatus(newStatus);
-                defenseSessionRepository.save(session);
-                updatedCount++;
-                
-                log.info("Đã cập nhật trạng thái session ID {} từ {} thành {}", 
+    @Scheduled(cron = "0 5 0 * * *")
+    public void rebuild() {
+        log.info("Dựng lại lịch chuyển trạng thái defense sessions từ DB");
+        synchronized (registrationLock) {
+            touchedDuringRebuild = new HashSet<>();
+        }
+        try {
+            List<DefenseSession> sessions = transactionTemplate.execute(status -> {
+                List<DefenseSession> active = defenseSessionRepository.findByStatusIn(ACTIVE_STATUSES);
+                applyTransitions(active, LocalDateTime.now());
+                return active;
+            });
+
+            synchronized (registrationLock) {
+                Set<Integer> snapshotIds = new HashSet<>();
+                sessions.forEach(session -> snapshotIds.add(session.getSessionId()));
+                // Bỏ mốc của các buổi không còn hoạt động trong DB, trừ buổi vừa được cập nhật sau khi lấy snapshot
+                for (Integer sessionId : List.copyOf(pending.keySet())) {
+                    if (!snapshotIds.contains(sessionId) && !touchedDuringRebuild.contains(sessionId)) {
+                        unschedule(sessionId);
+                    }
+                }
+                for (DefenseSession session : sessions) {
+                    if (!touchedDuringRebuild.contains(session.getSessionId())) {
+                        register(session);
+                    }
+                }
+                log.info("Đã đăng ký {} mốc chuyển trạng thái", pending.size());
+            }
+        } finally {
+            synchronized (registrationLock) {
+                touchedDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Gọi sau khi buổi bảo vệ được tạo/cập nhật (sau commit): kiểm tra lại ngay rồi đăng ký mốc tiếp theo
+     */
+    public void onSessionChanged(DefenseSession session) {
+        if (session == null || session.getSessionId() == null) {
+            return;
+        }
+        synchronized (registrationLock) {
+            markTouched(session.getSessionId());
+            if (wouldAdvance(session, LocalDateTime.now())) {
+                schedule(session.getSessionId(), LocalDateTime.now());
+            } else {
+                register(session);
+            }
+        }
+    }
+
+    /**
+     * Gọi sau khi buổi bảo vệ bị xoá
+     */
+    public void onSessionDeleted(Integer sessionId) {
+        synchronized (registrationLock) {
+            markTouched(sessionId);
+            unschedule(sessionId);
+        }
+    }
+
+    /**
+     * Method để test logic chuyển trạng thái (có thể gọi thủ công)
+     */
+    public void updateSessionStatusesManually() {
+        log.info("Chạy cập nhật trạng thái defense sessions thủ công");
+        rebuild();
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<PendingTransition> due = new ArrayList<>();
+                due.add(queue.take());
+                queue.drainTo(due);
+                processDue(due);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Lỗi khi cập nhật trạng thái defense sessions: ", e);
+            }
+        }
+    }
+
+    private void processDue(Collection<PendingTransition> due) {
+        // Bỏ các mục đã bị thay thế bởi lần đăng ký mới hơn
+        List<Integer> sessionIds = due.stream()
+                .filter(entry -> pending.remove(entry.sessionId(), entry))
+                .map(PendingTransition::sessionId)
+                .distinct()
+                .toList();
+        if (sessionIds.isEmpty()) {
+            return;
+        }
+
+        List<DefenseSession> sessions = transactionTemplate.execute(status -> {
+            List<DefenseSession> loaded = defenseSessionRepository.findAllById(sessionIds);
+            applyTransitions(loaded, LocalDateTime.now());
+            return loaded;
+        });
+        synchronized (registrationLock) {
+            for (DefenseSession session : sessions) {
+                register(session);
+            }
+        }
+    }
+
+    /**
+     * Tính trạng thái mới cho các buổi tại thời điểm now và lưu các buổi thay đổi bằng một lần saveAll
+     */
+    private void applyTransitions(List<DefenseSession> sessions, LocalDateTime now) {
+        List<DefenseSession> changed = new ArrayList<>();
+        for (DefenseSession session : sessions) {
+            DefenseSession.SessionStatus newStatus = determineNewStatus(session, now.toLocalDate(), now.toLocalTime());
+            if (isForward(session.getStatus(), newStatus)) {
+                log.info("Đã cập nhật trạng thái session ID {} từ {} thành {}",
                         session.getSessionId(), session.getStatus(), newStatus);
+                session.setStatus(newStatus);
+                changed.add(session);
+            }
+        }
+        if (!changed.isEmpty()) {
+            defenseSessionRepository.saveAll(changed);
+            // Trạng thái buổi hiển thị trong lịch trình của sinh viên
+            studentScheduleService.invalidateSessions(changed.stream().map(DefenseSession::getSessionId).toList());
+            log.info("Hoàn thành cập nhật trạng thái. Đã cập nhật {} sessions", changed.size());
+        }
+    }
+
+    // Các hàm dưới đây chỉ được gọi khi đang giữ registrationLock
+    private void register(DefenseSession session) {
+        if (!ACTIVE_STATUSES.contains(session.getStatus())) {
+            unschedule(session.getSessionId());
+            return;
+        }
+        LocalDateTime next = nextTransitionAt(session, LocalDateTime.now());
+        if (next == null) {
+            unschedule(session.getSessionId());
+        } else {
+            schedule(session.getSessionId(), next);
+        }
+    }
+
+    private void markTouched(Integer sessionId) {
+        if (touchedDuringRebuild != null) {
+            touchedDuringRebuild.add(sessionId);
+        }
+    }
+
+    private void unschedule(Integer sessionId) {
+        PendingTransition removed = pending.remove(sessionId);
+        if (removed != null) {
+            queue.remove(removed);
+        }
+    }
+
+    private void schedule(Integer sessionId, LocalDateTime at) {
+        PendingTransition entry = new PendingTransition(sessionId,
+                at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        PendingTransition previous = pending.put(sessionId, entry);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        queue.put(entry);
+    }
+
+    private boolean wouldAdvance(DefenseSession session, LocalDateTime now) {
+        return isForward(session.getStatus(), determineNewStatus(session, now.toLocalDate(), now.toLocalTime()));
+    }
+
+    /**
+     * Mốc gần nhất sau now mà trạng thái có thể đổi: 5 ngày trước ngày bảo vệ, giờ bắt đầu, giờ kết thúc, 19:00 ngày bảo vệ
+     */
+    private static LocalDateTime nextTransitionAt(DefenseSession session, LocalDateTime now) {
+        if (session.getDefenseDate() == null || session.getStartTime() == null || session.getEndTime() == null) {
+            return null;
+        }
+        LocalDate startDate = session.getStartTime().toLocalDate();
+        LocalDateTime[] candidates = {
+                startDate.minusDays(5).atStartOfDay(),
+                session.getStartTime(),
+                LocalDateTime.of(startDate, session.getEndTime().toLocalTime()),
+                startDate.atTime(COMPLETED_CUTOFF)
+        };
+        LocalDateTime next = null;
+        for (LocalDateTime candidate : candidates) {
+            LocalDateTime fireAt = candidate.plusSeconds(FIRE_DELAY_SECONDS);
+            if (fireAt.isAfter(now) && (next == null || fireAt.isBefore(next))) {
+                next = fireAt;
             }
         }
-        
-        log.info("Hoàn thành cập nhật trạng thái. Đã cập nhật {} sessions", updatedCount);
+        return next;
+    }
+
+    /**
+     * Chỉ cho phép chuyển tiến: PLANNING -> SCHEDULED -> IN_PROGRESS -> COMPLETED
+     */
+    private static boolean isForward(DefenseSession.SessionStatus current, DefenseSession.SessionStatus next) {
+        return next != null && current != null && ACTIVE_STATUSES.contains(current) && next.ordinal() > current.ordinal();
     }
 
     /**
      * Xác định trạng thái mới dựa trên ngày và thời gian hiện tại
      */
-    private DefenseSession.SessionStatus determineNewStatus(DefenseSession session, 
-                                                           LocalDate today, 
+    private DefenseSession.SessionStatus determineNewStatus(DefenseSession session,
+                                                           LocalDate today,
                                                            LocalTime currentTime) {
-        
+
         LocalDate defenseDate = session.getDefenseDate();
         LocalDateTime startTime = session.getStartTime();
         LocalDateTime endTime = session.getEndTime();
-        
+
         if (defenseDate == null || startTime == null || endTime == null) {
             return null; // Không thể xác định trạng thái nếu thiếu thông tin
         }
-        
+
         LocalDate startDate = startTime.toLocalDate();
         LocalTime startTimeOnly = startTime.toLocalTime();
         LocalTime endTimeOnly = endTime.toLocalTime();
-        
+
         // Tính số ngày trước khi diễn ra
         long daysUntilDefense = java.time.temporal.ChronoUnit.DAYS.between(today, startDate);
-        
+
         // Nếu đã qua ngày kết thúc (sau 7PM)
-        if (today.isAfter(startDate) || 
-            (today.equals(startDate) && currentTime.isAfter(LocalTime.of(19, 0)))) {
+        if (today.isAfter(startDate) ||
+            (today.equals(startDate) && currentTime.isAfter(COMPLETED_CUTOFF))) {
             return DefenseSession.SessionStatus.COMPLETED;
         }
-        
+
         // Nếu đang trong ngày diễn ra và trong khoảng thời gian bảo vệ
-        if (today.equals(startDate) && 
-            currentTime.isAfter(startTimeOnly) && 
+        if (today.equals(startDate) &&
+            currentTime.isAfter(startTimeOnly) &&
             currentTime.isBefore(endTimeOnly)) {
             return DefenseSession.SessionStatus.IN_PROGRESS;
         }
-        
+
         // Nếu cách 5 ngày trước khi diễn ra
         if (daysUntilDefense <= 5 && daysUntilDefense >= 0) {
             return DefenseSession.SessionStatus.SCHEDULED;
         }
-        
+
         // Nếu còn hơn 5 ngày thì giữ nguyên PLANNING
         return null; // Không thay đổi trạng thái
     }
 
     /**
-     * Method để test logic chuyển trạng thái (có thể gọi thủ công)
+     * Một mốc chuyển trạng thái trong DelayQueue; so sánh theo thời điểm đến hạn
      */
-    public void updateSessionStatusesManually() {
-        log.info("Chạy cập nhật trạng thái defense sessions thủ công");
-        updateSessionStatuses();
+    private record PendingTransition(Integer sessionId, long dueAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((PendingTransition) other).dueAtMillis);
+        }
     }
 }
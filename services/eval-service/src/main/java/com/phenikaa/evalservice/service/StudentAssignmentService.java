@@ -1,6 +1,7 @@
 package com.phenikaa.evalservice.service;
 
 import com.phenikaa.evalservice.client.NotificationServiceClient;
+import com.phenikaa.evalservice.dto.DefenseSessionDto;
 import com.phenikaa.evalservice.dto.StudentAssignmentRequest;
 import com.phenikaa.evalservice.dto.StudentAssignmentResult;
 import com.phenikaa.evalservice.entity.DefenseSession;
@@ -10,10 +11,14 @@ import com.phenikaa.evalservice.repository.StudentDefenseRepository;
 import com.phenikaa.evalservice.client.ThesisServiceClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.text.Normalizer;
 import java.util.regex.Pattern;
@@ -27,8 +32,117 @@ public class StudentAssignmentService {
     private final DefenseSessionRepository defenseSessionRepository;
     private final StudentDefenseRepository studentDefenseRepository;
     private final NotificationServiceClient notificationServiceClient;
+    private final DefenseSessionService defenseSessionService;
+    private final StudentScheduleService studentScheduleService;
 
+    // Thông báo của các lượt gán hàng loạt được gửi tuần tự trên thread riêng sau khi commit
+    @Qualifier("assignmentNotificationExecutor")
+    private final Executor notificationExecutor;
 
+    /**
+     * Một buổi trong kế hoạch xác nhận: sessionId của buổi đã có, hoặc newSession nếu cần tạo mới.
+     * students là các StudentDefense chưa gắn buổi, đã đủ thông tin tên/chuyên ngành/đề tài.
+     */
+    public record PlannedSession(Integer sessionId, DefenseSessionDto newSession, List<StudentDefense> students) {
+    }
+
+    public record ConfirmPlanResult(int createdSessions, int assignedStudents) {
+    }
+
+    /**
+     * Tạo các buổi mới và gán toàn bộ sinh viên của kế hoạch trong một transaction;
+     * lỗi ở bất kỳ bước nào sẽ rollback toàn bộ kế hoạch
+     */
+    public ConfirmPlanResult confirmPlan(List<PlannedSession> plan) {
+        int createdSessions = 0;
+        Map<Integer, List<StudentDefense>> studentsBySession = new LinkedHashMap<>();
+        for (PlannedSession planned : plan) {
+            Integer sessionId = planned.sessionId();
+            if (planned.newSession() != null) {
+                sessionId = defenseSessionService.createSession(planned.newSession()).getSessionId();
+                createdSessions++;
+            }
+            if (sessionId != null && planned.students() != null) {
+                studentsBySession.computeIfAbsent(sessionId, k -> new ArrayList<>()).addAll(planned.students());
+            }
+        }
+        return new ConfirmPlanResult(createdSessions, assignStudentsBatch(studentsBySession));
+    }
+
+    /**
+     * Gán hàng loạt sinh viên vào các buổi bảo vệ: sức chứa và danh sách đã gán của mọi buổi được nạp trong
+     * hai truy vấn, các bản ghi được chèn bằng một JDBC batch, thông báo được xếp hàng gửi sau khi commit.
+     * Cùng quy tắc với assignStudentToSession: bỏ qua buổi không tồn tại, buổi đã đầy, sinh viên đã có trong buổi.
+     *
+     * @return số sinh viên được gán
+     */
+    public int assignStudentsBatch(Map<Integer, List<StudentDefense>> studentsBySession) {
+        if (studentsBySession.isEmpty()) {
+            return 0;
+        }
+        Map<Integer, DefenseSession> sessions = defenseSessionRepository.findAllById(studentsBySession.keySet()).stream()
+                .collect(Collectors.toMap(DefenseSession::getSessionId, ds -> ds));
+        Map<Integer, Long> counts = new HashMap<>();
+        for (Object[] row : studentDefenseRepository.countBySessionIds(studentsBySession.keySet())) {
+            counts.put((Integer) row[0], (Long) row[1]);
+        }
+        Set<String> assigned = new HashSet<>();
+        for (Object[] row : studentDefenseRepository.findSessionStudentPairs(studentsBySession.keySet())) {
+            assigned.add(row[0] + ":" + row[1]);
+        }
+
+        List<StudentDefense> toSave = new ArrayList<>();
+        List<DefenseSession> scheduledSessions = new ArrayList<>();
+        studentsBySession.forEach((sessionId, students) -> {
+            DefenseSession session = sessions.get(sessionId);
+            if (session == null) {
+                log.error("Không tìm thấy buổi bảo vệ với ID: {}", sessionId);
+                return;
+            }
+            long count = counts.getOrDefault(sessionId, 0L);
+            int added = 0;
+            for (StudentDefense studentDefense : students) {
+                if (session.getMaxStudents() != null && count >= session.getMaxStudents()) {
+                    log.warn("Buổi bảo vệ {} đã đầy ({} sinh viên)", sessionId, count);
+                    break;
+                }
+                if (!assigned.add(sessionId + ":" + studentDefense.getStudentId())) {
+                    log.warn("Sinh viên {} đã được gán vào buổi bảo vệ {}", studentDefense.getStudentId(), sessionId);
+                    continue;
+                }
+                studentDefense.setDefenseSession(session);
+                studentDefense.setDefenseOrder((int) ++count);
+                studentDefense.setStatus(StudentDefense.DefenseStatus.SCHEDULED);
+                toSave.add(studentDefense);
+                added++;
+            }
+            if (added > 0 && session.getStatus() == DefenseSession.SessionStatus.PLANNING) {
+                session.setStatus(DefenseSession.SessionStatus.SCHEDULED);
+                scheduledSessions.add(session);
+            }
+        });
+
+        studentDefenseRepository.insertAllInBatch(toSave);
+        defenseSessionRepository.saveAll(scheduledSessions);
+        studentScheduleService.invalidate(toSave.stream().map(StudentDefense::getStudentId).toList());
+        log.info("Gán hàng loạt {} sinh viên vào {} buổi bảo vệ", toSave.size(), studentsBySession.size());
+
+        // Gửi thông báo sau khi commit để không gửi cho các lượt gán bị rollback
+        List<StudentDefense> notify = List.copyOf(toSave);
+        Runnable sendAll = () -> notificationExecutor.execute(() -> notify.forEach(sd ->
+                sendAssignmentNotification(sd.getStudentId(), sd.getDefenseSession(), sd.getStudentName(), sd.getTopicTitle())));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendAll.run();
+                }
+            });
+        } else {
+            sendAll.run();
+        }
+        return toSave.size();
+    }
 
     /**
      * Gán sinh viên vào buổi bảo vệ cụ thể
@@ -73,6 +187,7 @@ public class StudentAssignmentService {
                     .build();
 
             studentDefenseRepository.save(studentDefense);
+            studentScheduleService.invalidate(studentId);
             
             // Cập nhật trạng thái buổi bảo vệ
             if (session.getStatus() == DefenseSession.SessionStatus.PLANNING) {
@@ -108,6 +223,7 @@ public class StudentAssignmentService {
 
             // Xóa assignment
             studentDefenseRepository.delete(assignment);
+            studentScheduleService.invalidate(studentId);
             
             // Cập nhật thứ tự bảo vệ cho các sinh viên còn lại
             updateDefenseOrder(sessionId);
@@ -3,64 +3,94 @@ package com.phenikaa.evalservice.service;
 import com.phenikaa.evalservice.dto.StudentScheduleDto;
 import com.phenikaa.evalservice.entity.DefenseSession;
 import com.phenikaa.evalservice.entity.StudentDefense;
-import com.phenikaa.evalservice.repository.DefenseSessionRepository;
 import com.phenikaa.evalservice.repository.StudentDefenseRepository;
 import com.phenikaa.evalservice.client.ThesisServiceClient;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Lịch trình của sinh viên = lịch bảo vệ (DB local) + deadline và tên giảng viên (thesis-service).
+ * Lịch được dựng một lần cho mỗi sinh viên (các lời gọi sang thesis-service chạy song song, tên giảng viên gộp id trùng)
+ * rồi giữ trong cache tới hết TTL hoặc hết ngày (trạng thái urgent/upcoming phụ thuộc ngày hiện tại).
+ * Lịch dựng khi có lời gọi sang service khác bị lỗi chỉ được giữ trong thời gian ngắn để lần sau thử lại.
+ * Cache bị xoá khi sinh viên được gán/huỷ gán và khi buổi bảo vệ thay đổi (kể cả chuyển trạng thái tự động);
+ * deadline do thesis-service quản lý nên được cập nhật khi hết TTL.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class StudentScheduleService {
 
+    private static final String DEFAULT_SUPERVISOR_NAME = "Thầy/Cô hướng dẫn";
+
     private final StudentDefenseRepository studentDefenseRepository;
     private final ThesisServiceClient thesisServiceClient;
+    private final Executor fetchPool;
+    private final long ttlMillis;
+    private final long partialTtlMillis;
+
+    // Mỗi sinh viên một future: các request đồng thời khi cache trống dùng chung một lần dựng
+    private final Map<Integer, CompletableFuture<CachedSchedule>> cache = new ConcurrentHashMap<>();
+
+    public StudentScheduleService(StudentDefenseRepository studentDefenseRepository,
+                                  ThesisServiceClient thesisServiceClient,
+                                  @Qualifier("studentScheduleFetchExecutor") Executor fetchPool,
+                                  @Value("${student-schedule.cache.ttl-minutes:10}") long ttlMinutes,
+                                  @Value("${student-schedule.cache.partial-ttl-seconds:30}") long partialTtlSeconds) {
+        this.studentDefenseRepository = studentDefenseRepository;
+        this.thesisServiceClient = thesisServiceClient;
+        this.fetchPool = fetchPool;
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.partialTtlMillis = partialTtlSeconds * 1000L;
+    }
 
     /**
      * Lấy lịch trình đầy đủ của sinh viên
      */
     public List<StudentScheduleDto> getStudentSchedule(Integer studentId) {
-        List<StudentScheduleDto> schedule = new ArrayList<>();
-        
-        // Lấy lịch bảo vệ của sinh viên
-        List<StudentDefense> studentDefenses = studentDefenseRepository.findByStudentId(studentId);
-        schedule.addAll(studentDefenses.stream()
-            .map(this::convertToScheduleDto)
-            .collect(Collectors.toList()));
-
-        // Lấy các deadline từ thesis service
-        try {
-            List<Map<String, Object>> thesisDeadlines = thesisServiceClient.getStudentDeadlines(studentId);
-            schedule.addAll(thesisDeadlines.stream()
-                .map(deadline -> convertDeadlineToScheduleDto(deadline, studentId))
-                .collect(Collectors.toList()));
-        } catch (Exception e) {
-            log.error("Lỗi khi lấy deadline từ thesis service cho sinh viên {}: {}", studentId, e.getMessage());
+        CompletableFuture<CachedSchedule> future = cache.get(studentId);
+        if (future != null && future.isDone() && !future.join().isFresh()) {
+            cache.remove(studentId, future);
+            future = null;
         }
-
-        // Sắp xếp theo ngày
-        schedule.sort((a, b) -> {
-            if (a.getDate().equals(b.getDate())) {
-                if (a.getTime() == null && b.getTime() == null) return 0;
-                if (a.getTime() == null) return 1;
-                if (b.getTime() == null) return -1;
-                return a.getTime().compareTo(b.getTime());
+        if (future == null) {
+            CompletableFuture<CachedSchedule> created = new CompletableFuture<>();
+            future = cache.putIfAbsent(studentId, created);
+            if (future == null) {
+                future = created;
+                try {
+                    AtomicBoolean partial = new AtomicBoolean();
+                    List<StudentScheduleDto> items = buildSchedule(studentId, partial);
+                    long ttl = partial.get() ? partialTtlMillis : ttlMillis;
+                    created.complete(new CachedSchedule(items, LocalDate.now(), System.currentTimeMillis() + ttl));
+                } catch (RuntimeException e) {
+                    cache.remove(studentId, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
             }
-            return a.getDate().compareTo(b.getDate());
-        });
-
-        return schedule;
+        }
+        return future.join().items();
     }
 
     /**
@@ -69,9 +99,9 @@ public class StudentScheduleService {
     public List<StudentScheduleDto> getStudentScheduleByDateScope(Integer studentId, String startDateStr, String endDateStr) {
         LocalDate startDate = LocalDate.parse(startDateStr);
         LocalDate endDate = LocalDate.parse(endDateStr);
-        
+
         List<StudentScheduleDto> allSchedule = getStudentSchedule(studentId);
-        
+
         return allSchedule.stream()
             .filter(item -> !item.getDate().isBefore(startDate) && !item.getDate().isAfter(endDate))
             .collect(Collectors.toList());
@@ -83,23 +113,146 @@ public class StudentScheduleService {
     public List<StudentScheduleDto> getUpcomingSchedule(Integer studentId) {
         LocalDate today = LocalDate.now();
         LocalDate nextMonth = today.plusDays(30);
-        
+
         List<StudentScheduleDto> schedule = getStudentSchedule(studentId);
-        
+
         return schedule.stream()
             .filter(item -> !item.getDate().isBefore(today) && !item.getDate().isAfter(nextMonth))
             .collect(Collectors.toList());
     }
 
+    /**
+     * Xoá lịch đã cache của các sinh viên; nếu đang trong transaction thì xoá thêm lần nữa sau commit
+     * để không giữ lại lịch được dựng từ dữ liệu chưa commit
+     */
+    public void invalidate(Collection<Integer> studentIds) {
+        if (studentIds == null || studentIds.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = List.copyOf(new LinkedHashSet<>(studentIds));
+        ids.forEach(cache::remove);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ids.forEach(cache::remove);
+                }
+            });
+        }
+    }
+
+    public void invalidate(Integer studentId) {
+        if (studentId != null) {
+            invalidate(List.of(studentId));
+        }
+    }
+
+    /**
+     * Xoá lịch đã cache của mọi sinh viên trong buổi bảo vệ (khi đổi thời gian, địa điểm, trạng thái hoặc xoá buổi)
+     */
+    public void invalidateSession(Integer sessionId) {
+        if (sessionId != null) {
+            invalidateSessions(List.of(sessionId));
+        }
+    }
+
+    public void invalidateSessions(Collection<Integer> sessionIds) {
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return;
+        }
+        invalidate(studentDefenseRepository.findSessionStudentPairs(List.copyOf(sessionIds)).stream()
+                .map(row -> (Integer) row[1])
+                .toList());
+    }
+
+    // partial được bật nếu có lời gọi sang thesis-service bị lỗi
+    private List<StudentScheduleDto> buildSchedule(Integer studentId, AtomicBoolean partial) {
+        // Lịch bảo vệ của sinh viên (kèm buổi bảo vệ trong cùng truy vấn)
+        List<StudentDefense> studentDefenses = studentDefenseRepository.findByStudentIdWithSession(studentId);
+
+        // Deadline và giảng viên hướng dẫn của sinh viên lấy song song
+        CompletableFuture<List<Map<String, Object>>> deadlinesFuture = fetch(
+                () -> thesisServiceClient.getStudentDeadlines(studentId),
+                "deadline từ thesis service cho sinh viên " + studentId, partial);
+        CompletableFuture<Map<String, Object>> studentInfoFuture = fetch(
+                () -> thesisServiceClient.getStudentInfo(studentId),
+                "thông tin giảng viên hướng dẫn cho sinh viên " + studentId, partial);
+
+        Integer studentSupervisorId = null;
+        Map<String, Object> studentInfo = studentInfoFuture.join();
+        if (studentInfo != null && studentInfo.get("supervisorId") instanceof Number supervisorId) {
+            studentSupervisorId = supervisorId.intValue();
+        }
+
+        // Tên giảng viên: mỗi id chỉ gọi một lần, các id gọi song song
+        Set<Integer> supervisorIds = new LinkedHashSet<>();
+        studentDefenses.forEach(sd -> supervisorIds.add(sd.getSupervisorId()));
+        supervisorIds.add(studentSupervisorId);
+        supervisorIds.remove(null);
+        Map<Integer, CompletableFuture<Map<String, Object>>> supervisorFutures = new HashMap<>();
+        for (Integer supervisorId : supervisorIds) {
+            supervisorFutures.put(supervisorId, fetch(() -> thesisServiceClient.getSupervisorById(supervisorId),
+                    "thông tin giảng viên ID " + supervisorId, partial));
+        }
+        Map<Integer, String> supervisorNames = new HashMap<>();
+        supervisorFutures.forEach((supervisorId, future) -> {
+            Map<String, Object> supervisor = future.join();
+            supervisorNames.put(supervisorId, supervisor != null
+                    ? (String) supervisor.getOrDefault("fullName", DEFAULT_SUPERVISOR_NAME)
+                    : DEFAULT_SUPERVISOR_NAME);
+        });
+
+        List<StudentScheduleDto> schedule = new ArrayList<>();
+        for (StudentDefense studentDefense : studentDefenses) {
+            schedule.add(convertToScheduleDto(studentDefense, supervisorName(supervisorNames, studentDefense.getSupervisorId())));
+        }
+        List<Map<String, Object>> thesisDeadlines = deadlinesFuture.join();
+        if (thesisDeadlines != null) {
+            String studentSupervisorName = studentInfo != null
+                    ? supervisorName(supervisorNames, studentSupervisorId)
+                    : DEFAULT_SUPERVISOR_NAME;
+            for (Map<String, Object> deadline : thesisDeadlines) {
+                schedule.add(convertDeadlineToScheduleDto(deadline, studentSupervisorName));
+            }
+        }
+
+        // Sắp xếp theo ngày, cùng ngày thì theo giờ (không có giờ xếp sau)
+        schedule.sort(Comparator.comparing(StudentScheduleDto::getDate)
+                .thenComparing(StudentScheduleDto::getTime, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        return List.copyOf(schedule);
+    }
+
+    /**
+     * Chạy một lời gọi Feign trên pool riêng; lỗi được log, đánh dấu partial và trả về null để lịch vẫn hiển thị phần còn lại.
+     * Request context của thread gọi được pool chuyển sang để Feign dùng lại token của người dùng.
+     */
+    private <T> CompletableFuture<T> fetch(Supplier<T> call, String description, AtomicBoolean partial) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.get();
+            } catch (Exception e) {
+                log.error("Lỗi khi lấy {}: {}", description, e.getMessage());
+                partial.set(true);
+                return null;
+            }
+        }, fetchPool);
+    }
+
+    private static String supervisorName(Map<Integer, String> supervisorNames, Integer supervisorId) {
+        if (supervisorId == null) return "Chưa xác định";
+        return supervisorNames.getOrDefault(supervisorId, DEFAULT_SUPERVISOR_NAME);
+    }
+
     /**
      * Chuyển đổi StudentDefense thành StudentScheduleDto
      */
-    private StudentScheduleDto convertToScheduleDto(StudentDefense studentDefense) {
+    private StudentScheduleDto convertToScheduleDto(StudentDefense studentDefense, String supervisorName) {
         DefenseSession session = studentDefense.getDefenseSession();
-        
+
         // Xác định trạng thái
         String status = determineStatus(session.getDefenseDate(), session.getStatus().toString());
-        
+
         return StudentScheduleDto.builder()
             .scheduleId(studentDefense.getStudentDefenseId())
             .eventType("defense")
@@ -107,7 +260,7 @@ public class StudentScheduleService {
             .date(session.getDefenseDate())
             .time(session.getStartTime().toLocalTime())
             .location(session.getLocation())
-            .supervisor(getSupervisorName(studentDefense.getSupervisorId()))
+            .supervisor(supervisorName)
             .status(status)
             .description(String.format("Bảo vệ đồ án: %s", studentDefense.getTopicTitle()))
             .sessionId(session.getSessionId())
@@ -118,11 +271,11 @@ public class StudentScheduleService {
     /**
      * Chuyển đổi deadline thành StudentScheduleDto
      */
-    private StudentScheduleDto convertDeadlineToScheduleDto(Map<String, Object> deadline, Integer studentId) {
+    private StudentScheduleDto convertDeadlineToScheduleDto(Map<String, Object> deadline, String supervisorName) {
         String title = (String) deadline.getOrDefault("title", "Deadline");
         String dateStr = (String) deadline.getOrDefault("dueDate", "");
         String type = (String) deadline.getOrDefault("type", "deadline");
-        
+
         LocalDate date = LocalDate.now();
         try {
             if (!dateStr.isEmpty()) {
@@ -141,7 +294,7 @@ public class StudentScheduleService {
             .date(date)
             .time(type.equals("deadline") ? null : LocalTime.of(23, 59)) // Deadline usually at end of day
             .location("Online")
-            .supervisor(getSupervisorNameForStudent(studentId))
+            .supervisor(supervisorName)
             .status(status)
             .description((String) deadline.getOrDefault("description", ""))
             .topicId((Integer) deadline.getOrDefault("topicId", null))
@@ -154,11 +307,11 @@ public class StudentScheduleService {
     private String determineStatus(LocalDate date, String sessionStatus) {
         LocalDate today = LocalDate.now();
         long daysUntil = java.time.temporal.ChronoUnit.DAYS.between(today, date);
-        
+
         if (sessionStatus.equals("URGENT") || sessionStatus.equals("COMPLETED")) {
             return sessionStatus.equals("URGENT") ? "urgent" : "completed";
         }
-        
+
         if (daysUntil <= 3) {
             return "urgent";
         } else if (daysUntil <= 7) {
@@ -169,31 +322,12 @@ public class StudentScheduleService {
     }
 
     /**
-     * Lấy tên giảng viên hướng dẫn
+     * Lịch đã dựng của một sinh viên; hết hạn khi quá TTL hoặc sang ngày khác
      */
-    private String getSupervisorName(Integer supervisorId) {
-        if (supervisorId == null) return "Chưa xác định";
-        
-        try {
-            Map<String, Object> supervisor = thesisServiceClient.getSupervisorById(supervisorId);
-            return (String) supervisor.getOrDefault("fullName", "Thầy/Cô hướng dẫn");
-        } catch (Exception e) {
-            log.error("Không thể lấy thông tin giảng viên ID {}: {}", supervisorId, e.getMessage());
-            return "Thầy/Cô hướng dẫn";
-        }
-    }
+    private record CachedSchedule(List<StudentScheduleDto> items, LocalDate builtOn, long expiresAtMillis) {
 
-    /**
-     * Lấy tên giảng viên hướng dẫn cho sinh viên
-     */
-    private String getSupervisorNameForStudent(Integer studentId) {
-        try {
-            Map<String, Object> studentInfo = thesisServiceClient.getStudentInfo(studentId);
-            Integer supervisorId = (Integer) studentInfo.get("supervisorId");
-            return getSupervisorName(supervisorId);
-        } catch (Exception e) {
-            log.error("Không thể lấy thông tin giảng viên hướng dẫn cho sinh viên ID {}: {}", studentId, e.getMessage());
-            return "Thầy/Cô hướng dẫn";
+        boolean isFresh() {
+            return expiresAtMillis > System.currentTimeMillis() && builtOn.equals(LocalDate.now());
         }
     }
 }
@@ -0,0 +1,50 @@
+package com.phenikaa.evalservice.service.implement;
+
+import com.phenikaa.evalservice.service.interfaces.DefenseAssignmentEngine;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thuật toán xếp tham lam cũ: lần lượt từng sinh viên chọn buổi còn chỗ đông nhất,
+ * ưu tiên buổi có phản biện cùng chuyên ngành, rồi chuyên ngành liên quan, rồi bất kỳ.
+ * Kết quả phụ thuộc thứ tự sinh viên; giữ lại để đối chiếu và làm phương án dự phòng.
+ */
+@Component
+public class GreedyDefenseAssignmentEngine implements DefenseAssignmentEngine {
+
+    @Override
+    public String getName() {
+        return "greedy";
+    }
+
+    @Override
+    public int[] assign(List<String> studentMajors, List<SessionSlot> sessions) {
+        int[] result = new int[studentMajors.size()];
+        Arrays.fill(result, UNASSIGNED);
+        int[] sizes = new int[sessions.size()];
+
+        for (int i = 0; i < studentMajors.size(); i++) {
+            String major = studentMajors.get(i);
+            int best = UNASSIGNED;
+            int bestCost = Integer.MAX_VALUE;
+            for (int s = 0; s < sessions.size(); s++) {
+                if (sizes[s] >= sessions.get(s).capacity()) {
+                    continue;
+                }
+                int cost = DefenseAssignmentEngine.matchCost(major, sessions.get(s));
+                // Cùng mức ghép thì chọn buổi đông hơn; bằng nhau giữ buổi đứng trước
+                if (cost < bestCost || (cost == bestCost && sizes[s] > sizes[best])) {
+                    best = s;
+                    bestCost = cost;
+                }
+            }
+            if (best != UNASSIGNED) {
+                sizes[best]++;
+                result[i] = best;
+            }
+        }
+        return result;
+    }
+}
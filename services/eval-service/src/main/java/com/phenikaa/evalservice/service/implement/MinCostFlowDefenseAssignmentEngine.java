@@ -0,0 +1,155 @@
+package com.phenikaa.evalservice.service.implement;
+
+import com.phenikaa.evalservice.service.interfaces.DefenseAssignmentEngine;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Xếp sinh viên tối ưu toàn cục bằng min-cost max-flow.
+ * Sinh viên cùng chuyên ngành là tương đương nhau nên được gộp thành một node nhóm:
+ * nguồn -> nhóm chuyên ngành -> buổi bảo vệ -> đích, với chi phí cạnh nhóm -> buổi là mức ghép chuyên ngành.
+ * Đồ thị chỉ có (số chuyên ngành + số buổi) node nên chạy rất nhanh kể cả với hàng nghìn sinh viên.
+ */
+@Component
+public class MinCostFlowDefenseAssignmentEngine implements DefenseAssignmentEngine {
+
+    @Override
+    public String getName() {
+        return "min-cost-flow";
+    }
+
+    @Override
+    public int[] assign(List<String> studentMajors, List<SessionSlot> sessions) {
+        int[] result = new int[studentMajors.size()];
+        Arrays.fill(result, UNASSIGNED);
+        if (studentMajors.isEmpty() || sessions.isEmpty()) {
+            return result;
+        }
+
+        // Gom sinh viên theo chuyên ngành, giữ thứ tự đầu vào trong từng nhóm
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < studentMajors.size(); i++) {
+            groups.computeIfAbsent(studentMajors.get(i), k -> new ArrayList<>()).add(i);
+        }
+        List<String> majors = new ArrayList<>(groups.keySet());
+
+        int groupCount = majors.size();
+        int sessionCount = sessions.size();
+        int source = 0;
+        int sink = groupCount + sessionCount + 1;
+        FlowGraph graph = new FlowGraph(sink + 1);
+
+        int[][] groupSessionEdges = new int[groupCount][sessionCount];
+        for (int g = 0; g < groupCount; g++) {
+            String major = majors.get(g);
+            int size = groups.get(major).size();
+            graph.addEdge(source, 1 + g, size, 0);
+            for (int s = 0; s < sessionCount; s++) {
+                int cost = DefenseAssignmentEngine.matchCost(major, sessions.get(s));
+                groupSessionEdges[g][s] = graph.addEdge(1 + g, 1 + groupCount + s, size, cost);
+            }
+        }
+        for (int s = 0; s < sessionCount; s++) {
+            int capacity = Math.max(0, sessions.get(s).capacity());
+            if (capacity > 0) {
+                graph.addEdge(1 + groupCount + s, sink, capacity, 0);
+            }
+        }
+
+        graph.minCostMaxFlow(source, sink);
+
+        // Phân bổ lại lưu lượng nhóm -> buổi cho từng sinh viên
+        for (int g = 0; g < groupCount; g++) {
+            List<Integer> members = groups.get(majors.get(g));
+            int next = 0;
+            for (int s = 0; s < sessionCount && next < members.size(); s++) {
+                int flow = graph.flowOf(groupSessionEdges[g][s]);
+                for (int k = 0; k < flow && next < members.size(); k++) {
+                    result[members.get(next++)] = s;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Đồ thị luồng dạng mảng; tìm đường tăng chi phí nhỏ nhất bằng SPFA (Bellman-Ford dùng hàng đợi)
+     */
+    private static final class FlowGraph {
+        private final int nodeCount;
+        private final List<int[]> edges = new ArrayList<>(); // {to, capacity, cost, flow}
+        private final List<List<Integer>> adjacency = new ArrayList<>();
+
+        private FlowGraph(int nodeCount) {
+            this.nodeCount = nodeCount;
+            for (int i = 0; i < nodeCount; i++) {
+                adjacency.add(new ArrayList<>());
+            }
+        }
+
+        private int addEdge(int from, int to, int capacity, int cost) {
+            int id = edges.size();
+            edges.add(new int[]{to, capacity, cost, 0});
+            adjacency.get(from).add(id);
+            edges.add(new int[]{from, 0, -cost, 0});
+            adjacency.get(to).add(id + 1);
+            return id;
+        }
+
+        private int flowOf(int edgeId) {
+            return edges.get(edgeId)[3];
+        }
+
+        private void minCostMaxFlow(int source, int sink) {
+            int[] dist = new int[nodeCount];
+            int[] parentEdge = new int[nodeCount];
+            boolean[] inQueue = new boolean[nodeCount];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+            while (true) {
+                Arrays.fill(dist, Integer.MAX_VALUE);
+                Arrays.fill(parentEdge, -1);
+                dist[source] = 0;
+                queue.add(source);
+                inQueue[source] = true;
+
+                while (!queue.isEmpty()) {
+                    int u = queue.poll();
+                    inQueue[u] = false;
+                    for (int id : adjacency.get(u)) {
+                        int[] e = edges.get(id);
+                        if (e[1] - e[3] > 0 && dist[u] + e[2] < dist[e[0]]) {
+                            dist[e[0]] = dist[u] + e[2];
+                            parentEdge[e[0]] = id;
+                            if (!inQueue[e[0]]) {
+                                queue.add(e[0]);
+                                inQueue[e[0]] = true;
+                            }
+                        }
+                    }
+                }
+
+                if (dist[sink] == Integer.MAX_VALUE) {
+                    return;
+                }
+
+                // Đẩy tối đa lưu lượng theo cạnh hẹp nhất trên đường tìm được
+                int push = Integer.MAX_VALUE;
+                for (int v = sink; v != source; v = edges.get(parentEdge[v] ^ 1)[0]) {
+                    int[] e = edges.get(parentEdge[v]);
+                    push = Math.min(push, e[1] - e[3]);
+                }
+                for (int v = sink; v != source; v = edges.get(parentEdge[v] ^ 1)[0]) {
+                    edges.get(parentEdge[v])[3] += push;
+                    edges.get(parentEdge[v] ^ 1)[3] -= push;
+                }
+            }
+        }
+    }
+}
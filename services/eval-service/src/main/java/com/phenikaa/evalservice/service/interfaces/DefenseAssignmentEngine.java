@@ -0,0 +1,54 @@
+package com.phenikaa.evalservice.service.interfaces;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Thuật toán xếp sinh viên vào các buổi bảo vệ cho bước preview auto-assign.
+ */
+public interface DefenseAssignmentEngine {
+
+    int UNASSIGNED = -1;
+
+    // Chi phí ghép: giảng viên phản biện cùng chuyên ngành < chuyên ngành liên quan < bất kỳ
+    int EXACT_MATCH_COST = 0;
+    int RELATED_MATCH_COST = 1;
+    int NO_MATCH_COST = 2;
+
+    /**
+     * Tên dùng để chọn engine qua cấu hình auto-assign.engine
+     */
+    String getName();
+
+    /**
+     * @param studentMajors chuyên ngành của từng sinh viên, theo thứ tự đầu vào
+     * @param sessions      các buổi bảo vệ còn nhận sinh viên
+     * @return chỉ số buổi (trong sessions) cho từng sinh viên, UNASSIGNED nếu không còn chỗ
+     */
+    int[] assign(List<String> studentMajors, List<SessionSlot> sessions);
+
+    record SessionSlot(int capacity, Set<String> reviewerSpecializations) {
+    }
+
+    static int matchCost(String major, SessionSlot session) {
+        if (major == null) {
+            return NO_MATCH_COST;
+        }
+        int cost = NO_MATCH_COST;
+        for (String specialization : session.reviewerSpecializations()) {
+            if (major.equals(specialization)) {
+                return EXACT_MATCH_COST;
+            }
+            if (areRelatedMajors(specialization, major)) {
+                cost = RELATED_MATCH_COST;
+            }
+        }
+        return cost;
+    }
+
+    static boolean areRelatedMajors(String a, String b) {
+        // AI <-> Data Science coi là gần
+        return ("trí tuệ nhân tạo".equals(a) && "khoa học dữ liệu".equals(b))
+                || ("khoa học dữ liệu".equals(a) && "trí tuệ nhân tạo".equals(b));
+    }
+}
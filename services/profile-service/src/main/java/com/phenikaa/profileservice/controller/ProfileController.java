@@ -73,6 +73,18 @@ public class ProfileController {
         return ResponseEntity.ok(response);
     }
 
+    @PreAuthorize("hasAnyRole('ADMIN','TEACHER', 'STUDENT')")
+    @PostMapping("/teacher/get-profiles/batch")
+    public ResponseEntity<List<GetTeacherProfileResponse>> getTeacherProfilesByIds(@RequestBody List<Integer> userIds) {
+        return ResponseEntity.ok(profileService.getTeacherProfilesByIds(userIds));
+    }
+
+    @PreAuthorize("hasAnyRole('TEACHER','ADMIN')")
+    @PostMapping("/student/get-profiles/batch")
+    public ResponseEntity<List<GetStudentProfileResponse>> getStudentProfilesByIds(@RequestBody List<Integer> userIds) {
+        return ResponseEntity.ok(profileService.getStudentProfilesByIds(userIds));
+    }
+
     @PreAuthorize("hasAnyRole('TEACHER','ADMIN', 'STUDENT')")
     @GetMapping("/student/get-profile/{userId}")
     public ResponseEntity<GetStudentProfileResponse> getStudentProfile(@PathVariable Integer userId) {
@@ -10,6 +10,7 @@ import java.util.Optional;
 @Repository
 public interface StudentProfileRepository extends JpaRepository <StudentProfile, String>{
     Optional<StudentProfile> findByUserId(Integer userId);
+    List<StudentProfile> findByUserIdIn(List<Integer> userIds);
     Boolean existsByUserId(Integer userId);
     void deleteByUserId(Integer userId);
     
@@ -5,11 +5,13 @@ import com.phenikaa.profileservice.entity.TeacherProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TeacherProfileRepository extends JpaRepository<TeacherProfile, String> {
     Optional<TeacherProfile> findByUserId(Integer userId);
+    List<TeacherProfile> findByUserIdIn(List<Integer> userIds);
     Boolean existsByUserId(Integer userId);
     void deleteByUserId(Integer userId);
 }
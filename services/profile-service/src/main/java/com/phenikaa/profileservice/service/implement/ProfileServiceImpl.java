@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -163,6 +164,65 @@ public class ProfileServiceImpl implements ProfileService {
                 .toList();
     }
 
+    @Override
+    public List<GetTeacherProfileResponse> getTeacherProfilesByIds(List<Integer> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> distinctIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        List<TeacherProfile> profiles = teacherProfileRepository.findByUserIdIn(distinctIds);
+        if (profiles.isEmpty()) {
+            return List.of();
+        }
+
+        // Chỉ lấy thông tin user của những giảng viên có profile, trong một lần gọi user-service
+        List<GetUserResponse> users = userServiceClient.getUsersByIds(
+                profiles.stream().map(TeacherProfile::getUserId).toList());
+        Map<Integer, GetUserResponse> userMap = users == null ? Map.of() : users.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(GetUserResponse::getUserId, u -> u, (a, b) -> a));
+
+        return profiles.stream()
+                .map(profile -> {
+                    GetTeacherProfileResponse response = teacherProfileMapper.toResponse(
+                            userMap.get(profile.getUserId()),
+                            profile
+                    );
+                    response.setUserId(profile.getUserId());
+                    return response;
+                })
+                .toList();
+    }
+
+    @Override
+    public List<GetStudentProfileResponse> getStudentProfilesByIds(List<Integer> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return List.of();
+        }
+        List<Integer> distinctIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        List<StudentProfile> profiles = studentProfileRepository.findByUserIdIn(distinctIds);
+        if (profiles.isEmpty()) {
+            return List.of();
+        }
+
+        List<GetUserResponse> users = userServiceClient.getUsersByIds(
+                profiles.stream().map(StudentProfile::getUserId).toList());
+        Map<Integer, GetUserResponse> userMap = users == null ? Map.of() : users.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(GetUserResponse::getUserId, u -> u, (a, b) -> a));
+
+        return profiles.stream()
+                .map(profile -> {
+                    GetStudentProfileResponse response = studentProfileMapper.toResponse(
+                            userMap.get(profile.getUserId()),
+                            profile
+                    );
+                    response.setUserId(profile.getUserId());
+                    return response;
+                })
+                .toList();
+    }
+
 
     // Statistics methods implementation
     @Override
@@ -21,6 +21,9 @@ public interface ProfileService {
     TeacherProfile updateTeacherProfile(UpdateTeacherProfileRequest request, Integer userId, MultipartFile avtFile);
     void deleteProfile(Integer userId);
     List<GetTeacherProfileResponse> getAllTeacherProfiles();
+
+    List<GetTeacherProfileResponse> getTeacherProfilesByIds(List<Integer> userIds);
+    List<GetStudentProfileResponse> getStudentProfilesByIds(List<Integer> userIds);
     
     // Statistics methods
     Long getProfileCount();
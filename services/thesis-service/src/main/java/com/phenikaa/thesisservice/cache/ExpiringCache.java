@@ -0,0 +1,66 @@
+package com.phenikaa.thesisservice.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map thread-safe với TTL cố định cho mỗi entry và giới hạn số lượng entry.
+ * Dùng chung cho các cache dữ liệu hiển thị lấy từ service khác.
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxSize;
+
+    public ExpiringCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Trả về giá trị còn hạn, hoặc null nếu chưa có/đã hết hạn
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evictExpired();
+        }
+        // Cache đầy toàn entry còn hạn thì bỏ qua, lần sau sẽ gọi lại service
+        if (entries.size() < maxSize || entries.containsKey(key)) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    public void invalidate(K key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+}
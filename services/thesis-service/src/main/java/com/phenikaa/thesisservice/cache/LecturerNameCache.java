@@ -0,0 +1,78 @@
+package com.phenikaa.thesisservice.cache;
+
+import com.phenikaa.thesisservice.client.ProfileServiceClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache họ tên giảng viên lấy từ profile-service.
+ * Các id còn thiếu được resolve bằng một lần gọi batch tới /teacher/get-profiles/batch.
+ */
+@Component
+@Slf4j
+public class LecturerNameCache {
+
+    private final ProfileServiceClient profileServiceClient;
+    private final ExpiringCache<Integer, String> cache;
+
+    public LecturerNameCache(ProfileServiceClient profileServiceClient,
+                             @Value("${thesis.lecturer-cache.ttl-seconds:600}") long ttlSeconds,
+                             @Value("${thesis.lecturer-cache.max-size:5000}") int maxSize) {
+        this.profileServiceClient = profileServiceClient;
+        this.cache = new ExpiringCache<>(ttlSeconds * 1000, maxSize);
+    }
+
+    /**
+     * Resolve họ tên của nhiều giảng viên. Id không tìm thấy sẽ không có trong map kết quả.
+     */
+    public Map<Integer, String> resolveAll(Collection<Integer> lecturerIds) {
+        Map<Integer, String> result = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+
+        for (Integer lecturerId : lecturerIds) {
+            if (lecturerId == null || result.containsKey(lecturerId)) {
+                continue;
+            }
+            String cached = cache.get(lecturerId);
+            if (cached != null) {
+                result.put(lecturerId, cached);
+            } else {
+                missing.add(lecturerId);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        try {
+            List<Map<String, Object>> profiles = profileServiceClient.getLecturersByIds(new ArrayList<>(missing));
+            if (profiles != null) {
+                for (Map<String, Object> profile : profiles) {
+                    Object userId = profile.get("userId");
+                    Object fullName = profile.get("fullName");
+                    if (userId instanceof Number number && fullName != null) {
+                        cache.put(number.intValue(), fullName.toString());
+                        result.put(number.intValue(), fullName.toString());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Không thể lấy họ tên {} giảng viên từ profile-service: {}", missing.size(), e.getMessage());
+        }
+        return result;
+    }
+
+    public void invalidate(Integer lecturerId) {
+        cache.invalidate(lecturerId);
+    }
+}
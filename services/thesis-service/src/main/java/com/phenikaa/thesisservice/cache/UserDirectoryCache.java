@@ -0,0 +1,106 @@
+package com.phenikaa.thesisservice.cache;
+
+import com.phenikaa.dto.response.GetUserResponse;
+import com.phenikaa.thesisservice.client.UserServiceClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Cache thông tin hiển thị của user (username, fullName) lấy từ user-service.
+ * Các id chưa có trong cache được resolve bằng một lần gọi /internal/users/get-all-users/batch.
+ */
+@Component
+@Slf4j
+public class UserDirectoryCache {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final UserServiceClient userServiceClient;
+    private final ExpiringCache<Integer, GetUserResponse> cache;
+
+    public UserDirectoryCache(UserServiceClient userServiceClient,
+                              @Value("${thesis.user-cache.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${thesis.user-cache.max-size:20000}") int maxSize) {
+        this.userServiceClient = userServiceClient;
+        this.cache = new ExpiringCache<>(ttlSeconds * 1000, maxSize);
+    }
+
+    /**
+     * Resolve nhiều user cùng lúc. Id không tìm thấy sẽ không có trong map kết quả.
+     */
+    public Map<Integer, GetUserResponse> resolveAll(Collection<Integer> userIds) {
+        Map<Integer, GetUserResponse> result = new HashMap<>();
+        Set<Integer> missing = new LinkedHashSet<>();
+
+        for (Integer userId : userIds) {
+            if (userId == null || result.containsKey(userId)) {
+                continue;
+            }
+            GetUserResponse cached = cache.get(userId);
+            if (cached != null) {
+                result.put(userId, cached);
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            fetchBatch(new ArrayList<>(missing)).forEach(user -> result.put(user.getUserId(), user));
+        }
+        return result;
+    }
+
+    public GetUserResponse resolve(Integer userId) {
+        if (userId == null) {
+            return null;
+        }
+        return resolveAll(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Đưa dữ liệu user đã có sẵn (ví dụ từ danh sách sinh viên theo đợt) vào cache.
+     */
+    public void put(GetUserResponse user) {
+        if (user != null) {
+            cache.put(user.getUserId(), user);
+        }
+    }
+
+    public void invalidate(Integer userId) {
+        cache.invalidate(userId);
+    }
+
+    private List<GetUserResponse> fetchBatch(List<Integer> userIds) {
+        List<GetUserResponse> fetched = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i += BATCH_SIZE) {
+            List<Integer> chunk = userIds.subList(i, Math.min(i + BATCH_SIZE, userIds.size()));
+            try {
+                List<GetUserResponse> users = userServiceClient.getUsersByIds(chunk);
+                if (users == null) {
+                    continue;
+                }
+                users.stream()
+                        .filter(Objects::nonNull)
+                        .filter(user -> user.getUserId() != null)
+                        .forEach(user -> {
+                            put(user);
+                            fetched.add(user);
+                        });
+            } catch (Exception e) {
+                log.warn("Không thể lấy thông tin {} user từ user-service: {}", chunk.size(), e.getMessage());
+            }
+        }
+        log.debug("Resolved {}/{} user từ user-service", fetched.size(), userIds.size());
+        return fetched;
+    }
+}
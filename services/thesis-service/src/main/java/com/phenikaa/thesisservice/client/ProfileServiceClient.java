@@ -4,8 +4,11 @@ import com.phenikaa.filter.FeignTokenInterceptor;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
 import java.util.Map;
 
 @FeignClient(
@@ -21,6 +24,9 @@ public interface ProfileServiceClient {
     
     @GetMapping("/api/profile-service//teacher/get-profile/{userId}")
     Map<String, Object> getLecturerById(@PathVariable("userId") Integer userId);
+
+    @PostMapping("/api/profile-service/teacher/get-profiles/batch")
+    List<Map<String, Object>> getLecturersByIds(@RequestBody List<Integer> userIds);
 }
 
 
@@ -6,6 +6,8 @@ import com.phenikaa.thesisservice.dto.response.StudentsByPeriodResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
@@ -29,6 +31,9 @@ public interface UserServiceClient {
 
     @GetMapping("/internal/users/get-username/{userId}")
     String getUsernameById(@PathVariable("userId") Integer userId);
+
+    @PostMapping("/internal/users/get-all-users/batch")
+    List<GetUserResponse> getUsersByIds(@RequestBody List<Integer> userIds);
 }
 
 
@@ -288,5 +288,10 @@ public class ThesisTeacherController {
                     .body(Map.of("error", "Không thể lấy thông tin đề tài"));
         }
     }
-}
 
+    // API lấy thông tin nhiều topic trong một lần gọi (dùng cho eval-service)
+    @PostMapping("/topics/batch")
+    public ResponseEntity<List<Map<String, Object>>> getTopicsByIds(@RequestBody List<Integer> topicIds) {
+        return ResponseEntity.ok(thesisService.getTopicsByIds(topicIds));
+    }
+}
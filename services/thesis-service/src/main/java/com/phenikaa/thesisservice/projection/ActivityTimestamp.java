@@ -0,0 +1,10 @@
+package com.phenikaa.thesisservice.projection;
+
+import java.time.Instant;
+
+// Chỉ lấy thời điểm và đợt của một đăng ký/đề xuất để dựng lại rollup theo ngày
+public interface ActivityTimestamp {
+    Integer getId();
+    Instant getActivityAt();
+    Integer getPeriodId();
+}
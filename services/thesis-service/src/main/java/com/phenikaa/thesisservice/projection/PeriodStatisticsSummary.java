@@ -0,0 +1,14 @@
+package com.phenikaa.thesisservice.projection;
+
+// Kết quả đếm theo trạng thái của đăng ký/đề xuất trong một đợt, tính sẵn trong SQL
+public interface PeriodStatisticsSummary {
+    Long getTotalRegistrations();
+    Long getApprovedRegistrations();
+    Long getPendingRegistrations();
+    Long getRejectedRegistrations();
+    Long getTotalSuggestions();
+    Long getApprovedSuggestions();
+    Long getPendingSuggestions();
+    Long getRejectedSuggestions();
+    Long getTotalUniqueStudents();
+}
@@ -2,10 +2,12 @@ package com.phenikaa.thesisservice.repository;
 
 import com.phenikaa.thesisservice.entity.LecturerCapacity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,4 +37,35 @@ public interface LecturerCapacityRepository extends JpaRepository<LecturerCapaci
     // Kiểm tra xem giảng viên có thể nhận thêm sinh viên trong đợt đăng ký không
     @Query("SELECT lc FROM LecturerCapacity lc WHERE lc.lecturerId = :lecturerId AND lc.registrationPeriodId = :periodId AND lc.currentStudents < lc.maxStudents")
     Optional<LecturerCapacity> findAvailableCapacity(@Param("lecturerId") Integer lecturerId, @Param("periodId") Integer periodId);
+
+    // Giữ chỗ: giảm maxStudents trong một câu lệnh có điều kiện, trả về 0 nếu giảng viên đã hết slot
+    @Modifying
+    @Query("UPDATE LecturerCapacity lc SET lc.maxStudents = lc.maxStudents - 1, lc.updatedAt = :now " +
+            "WHERE lc.lecturerId = :lecturerId AND lc.registrationPeriodId = :periodId AND lc.maxStudents > 0")
+    int tryReserveSlot(@Param("lecturerId") Integer lecturerId,
+                       @Param("periodId") Integer periodId,
+                       @Param("now") LocalDateTime now);
+
+    // Hoàn trả slot khi đăng ký/đề xuất bị từ chối
+    @Modifying
+    @Query("UPDATE LecturerCapacity lc SET lc.maxStudents = lc.maxStudents + 1, lc.updatedAt = :now " +
+            "WHERE lc.lecturerId = :lecturerId AND lc.registrationPeriodId = :periodId")
+    int releaseSlot(@Param("lecturerId") Integer lecturerId,
+                    @Param("periodId") Integer periodId,
+                    @Param("now") LocalDateTime now);
+
+    // Tạo bản ghi capacity nếu chưa có trong một câu lệnh; UPDLOCK/HOLDLOCK giữ khoảng khóa để hai request cùng lúc không cùng insert
+    @Modifying
+    @Query(value = "INSERT INTO HieuDT.lecturer_capacity " +
+            "(lecturer_id, registration_period_id, max_students, current_students, created_at, updated_at) " +
+            "SELECT :lecturerId, :periodId, :maxStudents, 0, :now, :now " +
+            "WHERE NOT EXISTS (SELECT 1 FROM HieuDT.lecturer_capacity WITH (UPDLOCK, HOLDLOCK) " +
+            "   WHERE lecturer_id = :lecturerId AND registration_period_id = :periodId)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("lecturerId") Integer lecturerId,
+                       @Param("periodId") Integer periodId,
+                       @Param("maxStudents") Integer maxStudents,
+                       @Param("now") LocalDateTime now);
+
+    boolean existsByLecturerIdAndRegistrationPeriodId(Integer lecturerId, Integer registrationPeriodId);
 }
@@ -1,11 +1,15 @@
 package com.phenikaa.thesisservice.repository;
 
 import com.phenikaa.thesisservice.entity.Register;
+import com.phenikaa.thesisservice.projection.ActivityTimestamp;
+import com.phenikaa.thesisservice.projection.PeriodStatisticsSummary;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,12 +30,51 @@ public interface RegisterRepository extends JpaRepository<Register, Integer> {
     
     // Lấy danh sách đăng ký theo đợt đăng ký
     List<Register> findByRegistrationPeriodId(Integer registrationPeriodId);
+
+    // Lấy danh sách đăng ký theo đợt kèm đề tài trong cùng một query
+    @EntityGraph(attributePaths = "projectTopic")
+    List<Register> findWithProjectTopicByRegistrationPeriodId(Integer registrationPeriodId);
     
     // Statistics methods
     Long countByRegisterStatus(Register.RegisterStatus registerStatus);
     Long countByRegistrationPeriodId(Integer registrationPeriodId);
     List<Register> findByProjectTopicTopicId(Integer topicId);
     
+    // Thống kê theo đợt: đếm mọi trạng thái của đăng ký, đề xuất và số sinh viên duy nhất trong một round trip
+    @Query(value = "SELECT r.total_registrations AS totalRegistrations, " +
+            "r.approved_registrations AS approvedRegistrations, " +
+            "r.pending_registrations AS pendingRegistrations, " +
+            "r.rejected_registrations AS rejectedRegistrations, " +
+            "s.total_suggestions AS totalSuggestions, " +
+            "s.approved_suggestions AS approvedSuggestions, " +
+            "s.pending_suggestions AS pendingSuggestions, " +
+            "s.rejected_suggestions AS rejectedSuggestions, " +
+            "(SELECT CAST(COUNT(*) AS BIGINT) FROM (" +
+            "   SELECT rg.student_id AS student_id FROM HieuDT.register rg WHERE rg.registration_period_id = :periodId " +
+            "   UNION " +
+            "   SELECT st.suggested_by FROM HieuDT.suggested_topic st WHERE st.registration_period_id = :periodId" +
+            ") u) AS totalUniqueStudents " +
+            "FROM (SELECT CAST(COUNT(*) AS BIGINT) AS total_registrations, " +
+            "   CAST(COALESCE(SUM(CASE WHEN register_status = 'APPROVED' THEN 1 ELSE 0 END), 0) AS BIGINT) AS approved_registrations, " +
+            "   CAST(COALESCE(SUM(CASE WHEN register_status = 'PENDING' THEN 1 ELSE 0 END), 0) AS BIGINT) AS pending_registrations, " +
+            "   CAST(COALESCE(SUM(CASE WHEN register_status = 'REJECTED' THEN 1 ELSE 0 END), 0) AS BIGINT) AS rejected_registrations " +
+            "   FROM HieuDT.register WHERE registration_period_id = :periodId) r " +
+            "CROSS JOIN (SELECT CAST(COUNT(*) AS BIGINT) AS total_suggestions, " +
+            "   CAST(COALESCE(SUM(CASE WHEN suggestion_status = 'APPROVED' THEN 1 ELSE 0 END), 0) AS BIGINT) AS approved_suggestions, " +
+            "   CAST(COALESCE(SUM(CASE WHEN suggestion_status = 'PENDING' THEN 1 ELSE 0 END), 0) AS BIGINT) AS pending_suggestions, " +
+            "   CAST(COALESCE(SUM(CASE WHEN suggestion_status = 'REJECTED' THEN 1 ELSE 0 END), 0) AS BIGINT) AS rejected_suggestions " +
+            "   FROM HieuDT.suggested_topic WHERE registration_period_id = :periodId) s",
+            nativeQuery = true)
+    PeriodStatisticsSummary getPeriodStatisticsSummary(@Param("periodId") Integer periodId);
+
+    // Chỉ lấy thời điểm đăng ký và đợt để dựng rollup theo ngày
+    @Query("SELECT r.registerId AS id, r.registeredAt AS activityAt, r.registrationPeriodId AS periodId FROM Register r WHERE r.registeredAt IS NOT NULL")
+    List<ActivityTimestamp> findAllActivityTimestamps();
+
+    // Các đăng ký từ thời điểm since, dùng để đối soát rollup của những ngày gần đây
+    @Query("SELECT r.registerId AS id, r.registeredAt AS activityAt, r.registrationPeriodId AS periodId FROM Register r WHERE r.registeredAt >= :since")
+    List<ActivityTimestamp> findActivityTimestampsSince(@Param("since") Instant since);
+
     // Today's statistics
     Long countByRegisteredAtBetween(java.time.Instant start, java.time.Instant end);
     List<Register> findByRegisteredAtBetween(java.time.Instant start, java.time.Instant end);
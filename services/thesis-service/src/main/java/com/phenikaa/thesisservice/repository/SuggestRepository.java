@@ -1,9 +1,14 @@
 package com.phenikaa.thesisservice.repository;
 
 import com.phenikaa.thesisservice.entity.SuggestedTopic;
+import com.phenikaa.thesisservice.projection.ActivityTimestamp;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.Instant;
 import java.util.List;
 
 public interface SuggestRepository extends JpaRepository<SuggestedTopic, Integer> {
@@ -16,4 +21,16 @@ public interface SuggestRepository extends JpaRepository<SuggestedTopic, Integer
     
     // Lấy danh sách đề tài được đề xuất theo đợt đăng ký
     List<SuggestedTopic> findByRegistrationPeriodId(Integer registrationPeriodId);
+
+    // Lấy danh sách đề xuất theo đợt kèm đề tài trong cùng một query
+    @EntityGraph(attributePaths = "projectTopic")
+    List<SuggestedTopic> findWithProjectTopicByRegistrationPeriodId(Integer registrationPeriodId);
+
+    // Chỉ lấy thời điểm đề xuất và đợt để dựng rollup theo ngày
+    @Query("SELECT s.suggestedId AS id, s.createdAt AS activityAt, s.registrationPeriodId AS periodId FROM SuggestedTopic s WHERE s.createdAt IS NOT NULL")
+    List<ActivityTimestamp> findAllActivityTimestamps();
+
+    // Các đề xuất từ thời điểm since, dùng để đối soát rollup của những ngày gần đây
+    @Query("SELECT s.suggestedId AS id, s.createdAt AS activityAt, s.registrationPeriodId AS periodId FROM SuggestedTopic s WHERE s.createdAt >= :since")
+    List<ActivityTimestamp> findActivityTimestampsSince(@Param("since") Instant since);
 }
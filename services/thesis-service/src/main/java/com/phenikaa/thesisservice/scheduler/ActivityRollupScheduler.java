@@ -0,0 +1,41 @@
+package com.phenikaa.thesisservice.scheduler;
+
+import com.phenikaa.thesisservice.service.interfaces.ActivityRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityRollupScheduler {
+
+    private final ActivityRollupService activityRollupService;
+
+    /**
+     * Dựng rollup theo ngày khi service khởi động
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        try {
+            activityRollupService.rebuild();
+        } catch (Exception e) {
+            log.error("Lỗi khi dựng lại rollup đăng ký/đề xuất theo ngày: ", e);
+        }
+    }
+
+    /**
+     * Đối soát các ngày gần đây mỗi giờ (bản ghi bị xóa hoặc được ghi bởi instance khác)
+     */
+    @Scheduled(cron = "0 30 * * * *")
+    public void hourlyReconcile() {
+        try {
+            activityRollupService.reconcileRecent();
+        } catch (Exception e) {
+            log.error("Lỗi khi đối soát rollup đăng ký/đề xuất theo ngày: ", e);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.phenikaa.thesisservice.service.implement;
+
+import com.phenikaa.thesisservice.projection.ActivityTimestamp;
+import com.phenikaa.thesisservice.repository.RegisterRepository;
+import com.phenikaa.thesisservice.repository.SuggestRepository;
+import com.phenikaa.thesisservice.service.interfaces.ActivityRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rollup số lượng đăng ký/đề xuất theo ngày, giữ trong bộ nhớ.
+ * Được cập nhật khi có bản ghi mới, dựng lại toàn bộ từ DB khi khởi động và chỉ đối soát các ngày gần đây theo định kỳ,
+ * nên truy vấn time-series chỉ tốn O(số ngày).
+ * Map mới được dựng riêng rồi mới thay thế; các sự kiện ghi nhận trong lúc dựng được bù vào map mới theo id,
+ * nên không bị mất cũng không bị đếm hai lần.
+ */
+@Service
+@Slf4j
+public class ActivityRollupServiceImpl implements ActivityRollupService {
+
+    private final RegisterRepository registerRepository;
+    private final SuggestRepository suggestRepository;
+    private final int reconcileDays;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // record() giữ read lock, bước thay map giữ write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<ActivityType, NavigableMap<LocalDate, DayBucket>> rollups = emptyRollups();
+
+    // Sự kiện ghi nhận trong lúc đang dựng lại; khác null chỉ khi có một lần dựng đang chạy (đọc/ghi dưới swapLock)
+    private Queue<RecordedEvent> pendingDuringRebuild;
+
+    public ActivityRollupServiceImpl(RegisterRepository registerRepository,
+                                     SuggestRepository suggestRepository,
+                                     @Value("${thesis.activity-rollup.reconcile-days:2}") int reconcileDays) {
+        this.registerRepository = registerRepository;
+        this.suggestRepository = suggestRepository;
+        this.reconcileDays = Math.max(1, reconcileDays);
+    }
+
+    @Override
+    public void record(ActivityType type, Integer id, Instant occurredAt, Integer periodId) {
+        if (occurredAt == null) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            add(rollups.get(type), occurredAt, periodId);
+            Queue<RecordedEvent> pending = pendingDuringRebuild;
+            if (pending != null) {
+                pending.add(new RecordedEvent(type, id, occurredAt, periodId));
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> getDailyCounts(ActivityType type, LocalDate startDate, LocalDate endDate, Integer periodId) {
+        SortedMap<LocalDate, Long> result = new TreeMap<>();
+        if (startDate.isAfter(endDate)) {
+            return result;
+        }
+        rollups.get(type).subMap(startDate, true, endDate, true).forEach((date, bucket) -> {
+            long count = bucket.count(periodId);
+            if (count > 0) {
+                result.put(date, count);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void rebuild() {
+        rebuildFrom(null);
+    }
+
+    @Override
+    public void reconcileRecent() {
+        LocalDate fromDate = LocalDate.now(zone).minusDays(reconcileDays - 1L);
+        rebuildFrom(fromDate);
+    }
+
+    /**
+     * Dựng lại các ngày từ fromDate (null = toàn bộ); các ngày trước đó giữ nguyên bucket hiện có
+     */
+    private synchronized void rebuildFrom(LocalDate fromDate) {
+        long startedAt = System.currentTimeMillis();
+        Queue<RecordedEvent> pending = new ConcurrentLinkedQueue<>();
+        setPending(pending);
+        try {
+            Instant since = fromDate != null ? fromDate.atStartOfDay(zone).toInstant() : null;
+            Map<ActivityType, List<ActivityTimestamp>> snapshot = new EnumMap<>(ActivityType.class);
+            snapshot.put(ActivityType.REGISTRATION, since == null
+                    ? registerRepository.findAllActivityTimestamps()
+                    : registerRepository.findActivityTimestampsSince(since));
+            snapshot.put(ActivityType.SUGGESTION, since == null
+                    ? suggestRepository.findAllActivityTimestamps()
+                    : suggestRepository.findActivityTimestampsSince(since));
+
+            Map<ActivityType, NavigableMap<LocalDate, DayBucket>> rebuilt = emptyRollups();
+            Map<ActivityType, Set<Integer>> snapshotIds = new EnumMap<>(ActivityType.class);
+            snapshot.forEach((type, rows) -> {
+                Set<Integer> ids = new HashSet<>();
+                rows.forEach(row -> {
+                    add(rebuilt.get(type), row.getActivityAt(), row.getPeriodId());
+                    ids.add(row.getId());
+                });
+                snapshotIds.put(type, ids);
+            });
+
+            swapLock.writeLock().lock();
+            try {
+                for (ActivityType type : ActivityType.values()) {
+                    if (fromDate != null) {
+                        rebuilt.get(type).putAll(rollups.get(type).headMap(fromDate, false));
+                    }
+                }
+                // Bù các sự kiện đã ghi nhận trong lúc truy vấn mà snapshot chưa thấy
+                for (RecordedEvent event : pending) {
+                    LocalDate date = event.occurredAt().atZone(zone).toLocalDate();
+                    boolean inRebuiltRange = fromDate == null || !date.isBefore(fromDate);
+                    if (inRebuiltRange && (event.id() == null || !snapshotIds.get(event.type()).contains(event.id()))) {
+                        add(rebuilt.get(event.type()), event.occurredAt(), event.periodId());
+                    }
+                }
+                rollups = rebuilt;
+                pendingDuringRebuild = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            log.info("Đã dựng lại rollup theo ngày từ {}: {} đăng ký, {} đề xuất trong {} ms",
+                    fromDate != null ? fromDate : "đầu",
+                    snapshot.get(ActivityType.REGISTRATION).size(),
+                    snapshot.get(ActivityType.SUGGESTION).size(),
+                    System.currentTimeMillis() - startedAt);
+        } finally {
+            setPending(null);
+        }
+    }
+
+    private void setPending(Queue<RecordedEvent> pending) {
+        swapLock.writeLock().lock();
+        try {
+            pendingDuringRebuild = pending;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private void add(NavigableMap<LocalDate, DayBucket> rollup, Instant occurredAt, Integer periodId) {
+        if (occurredAt == null) {
+            return;
+        }
+        LocalDate date = occurredAt.atZone(zone).toLocalDate();
+        rollup.computeIfAbsent(date, d -> new DayBucket()).increment(periodId);
+    }
+
+    private static Map<ActivityType, NavigableMap<LocalDate, DayBucket>> emptyRollups() {
+        Map<ActivityType, NavigableMap<LocalDate, DayBucket>> map = new EnumMap<>(ActivityType.class);
+        for (ActivityType type : ActivityType.values()) {
+            map.put(type, new ConcurrentSkipListMap<>());
+        }
+        return map;
+    }
+
+    private record RecordedEvent(ActivityType type, Integer id, Instant occurredAt, Integer periodId) {
+    }
+
+    private static final class DayBucket {
+        private final LongAdder total = new LongAdder();
+        private final Map<Integer, LongAdder> byPeriod = new ConcurrentHashMap<>();
+
+        void increment(Integer periodId) {
+            total.increment();
+            if (periodId != null) {
+                byPeriod.computeIfAbsent(periodId, p -> new LongAdder()).increment();
+            }
+        }
+
+        long count(Integer periodId) {
+            if (periodId == null) {
+                return total.sum();
+            }
+            LongAdder adder = byPeriod.get(periodId);
+            return adder != null ? adder.sum() : 0L;
+        }
+    }
+}
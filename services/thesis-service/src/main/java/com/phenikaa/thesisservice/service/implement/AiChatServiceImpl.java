@@ -11,6 +11,7 @@ import com.phenikaa.thesisservice.repository.LecturerCapacityRepository;
 import com.phenikaa.thesisservice.service.interfaces.RegistrationPeriodService;
 import com.phenikaa.thesisservice.service.interfaces.AiChatService;
 import com.phenikaa.thesisservice.service.interfaces.SuggestionService;
+import com.phenikaa.utils.MajorClassifier;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
 import dev.langchain4j.exception.InternalServerException;
@@ -21,6 +22,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -35,6 +37,7 @@ public class AiChatServiceImpl implements AiChatService {
     private final RegisterRepository registerRepository;
     private final RegistrationPeriodService registrationPeriodService;
     private final SuggestionService suggestionService;
+    private final MajorClassifier majorClassifier;
 
     // Intent constants
     private static final String INTENT_TOPIC_SUGGESTION = "topic_suggestion";
@@ -302,6 +305,13 @@ public class AiChatServiceImpl implements AiChatService {
                 }
             }
 
+            // Đưa giảng viên cùng chuyên ngành với yêu cầu lên đầu danh sách, chỉ khi yêu cầu thực sự khớp từ khoá
+            String requestedMajor = majorClassifier.classifyOrNull(userMessage);
+            if (requestedMajor != null) {
+                suggestions.sort(Comparator.comparing(
+                        (ChatResponse.LecturerSuggestion s) -> !requestedMajor.equals(majorClassifier.classifyOrNull(s.getSpecialization()))));
+            }
+
             String message = String.format("""
                     **DANH SÁCH GIẢNG VIÊN PHÙ HỢP**
                     
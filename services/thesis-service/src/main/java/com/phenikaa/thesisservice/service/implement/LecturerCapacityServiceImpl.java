@@ -0,0 +1,115 @@
+package com.phenikaa.thesisservice.service.implement;
+
+import com.phenikaa.thesisservice.cache.ExpiringCache;
+import com.phenikaa.thesisservice.entity.RegistrationPeriod;
+import com.phenikaa.thesisservice.repository.LecturerCapacityRepository;
+import com.phenikaa.thesisservice.repository.RegistrationPeriodRepository;
+import com.phenikaa.thesisservice.service.interfaces.LecturerCapacityService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+@Service
+@Slf4j
+public class LecturerCapacityServiceImpl implements LecturerCapacityService {
+
+    // Thời gian ghi nhớ trạng thái "hết slot" để từ chối nhanh khi nhiều sinh viên cùng đăng ký một giảng viên
+    private static final long FULL_MARKER_TTL_MILLIS = 2_000;
+
+    private final LecturerCapacityRepository lecturerCapacityRepository;
+    private final RegistrationPeriodRepository registrationPeriodRepository;
+
+    // Các cặp (lecturer, period) đã có bản ghi capacity đã commit; có hạn và giới hạn số lượng
+    private final ExpiringCache<String, Boolean> knownCapacities;
+    private final ExpiringCache<String, Boolean> knownFull;
+
+    public LecturerCapacityServiceImpl(LecturerCapacityRepository lecturerCapacityRepository,
+                                       RegistrationPeriodRepository registrationPeriodRepository,
+                                       @Value("${thesis.lecturer-capacity.cache-ttl-seconds:600}") long ttlSeconds,
+                                       @Value("${thesis.lecturer-capacity.cache-max-size:10000}") int maxSize) {
+        this.lecturerCapacityRepository = lecturerCapacityRepository;
+        this.registrationPeriodRepository = registrationPeriodRepository;
+        this.knownCapacities = new ExpiringCache<>(ttlSeconds * 1000, maxSize);
+        this.knownFull = new ExpiringCache<>(FULL_MARKER_TTL_MILLIS, maxSize);
+    }
+
+    /**
+     * Chạy trong transaction của bên gọi: cache hit không mở transaction/kết nối thứ hai,
+     * cache miss thì insert-if-absent (đã nguyên tử nhờ UPDLOCK/HOLDLOCK) ngay trong transaction đó
+     */
+    @Override
+    @Transactional
+    public void ensureCapacity(Integer lecturerId, Integer periodId) {
+        String key = key(lecturerId, periodId);
+        if (knownCapacities.get(key) != null) {
+            return;
+        }
+        insertIfAbsent(lecturerId, periodId);
+
+        // Chỉ ghi nhớ sau khi bản ghi đã thực sự commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    knownCapacities.put(key, Boolean.TRUE);
+                }
+            });
+        } else {
+            knownCapacities.put(key, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public boolean isKnownFull(Integer lecturerId, Integer periodId) {
+        return knownFull.get(key(lecturerId, periodId)) != null;
+    }
+
+    @Override
+    @Transactional
+    public boolean tryReserve(Integer lecturerId, Integer periodId) {
+        String key = key(lecturerId, periodId);
+        int updated = lecturerCapacityRepository.tryReserveSlot(lecturerId, periodId, LocalDateTime.now());
+        if (updated == 0 && !lecturerCapacityRepository.existsByLecturerIdAndRegistrationPeriodId(lecturerId, periodId)) {
+            // Không có bản ghi (bị xóa hoặc lần tạo trước đã rollback) chứ không phải hết slot: tạo lại rồi thử một lần nữa
+            knownCapacities.invalidate(key);
+            insertIfAbsent(lecturerId, periodId);
+            updated = lecturerCapacityRepository.tryReserveSlot(lecturerId, periodId, LocalDateTime.now());
+        }
+        if (updated == 0) {
+            knownFull.put(key, Boolean.TRUE);
+            log.debug("Giảng viên {} đã hết slot trong period {}", lecturerId, periodId);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public void release(Integer lecturerId, Integer periodId) {
+        int updated = lecturerCapacityRepository.releaseSlot(lecturerId, periodId, LocalDateTime.now());
+        if (updated > 0) {
+            knownFull.invalidate(key(lecturerId, periodId));
+        }
+    }
+
+    private void insertIfAbsent(Integer lecturerId, Integer periodId) {
+        RegistrationPeriod period = registrationPeriodRepository.findById(periodId)
+                .orElseThrow(() -> new RuntimeException("Period not found with id: " + periodId));
+
+        int inserted = lecturerCapacityRepository.insertIfAbsent(
+                lecturerId, periodId, period.getMaxStudentsPerLecturer(), LocalDateTime.now());
+        if (inserted > 0) {
+            log.info("Đã tạo LecturerCapacity mới cho lecturer {} trong period {} với maxStudents={}",
+                    lecturerId, periodId, period.getMaxStudentsPerLecturer());
+        }
+    }
+
+    private String key(Integer lecturerId, Integer periodId) {
+        return lecturerId + ":" + periodId;
+    }
+}
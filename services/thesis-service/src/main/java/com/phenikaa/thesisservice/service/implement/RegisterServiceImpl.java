@@ -4,18 +4,22 @@ import com.phenikaa.thesisservice.dto.request.RegisterTopicRequest;
 import com.phenikaa.thesisservice.entity.ProjectTopic;
 import com.phenikaa.thesisservice.entity.Register;
 import com.phenikaa.thesisservice.entity.RegistrationPeriod;
-import com.phenikaa.thesisservice.entity.LecturerCapacity;
 import com.phenikaa.thesisservice.mapper.RegisterMapper;
 import com.phenikaa.thesisservice.repository.ProjectTopicRepository;
 import com.phenikaa.thesisservice.repository.RegisterRepository;
 import com.phenikaa.thesisservice.repository.RegistrationPeriodRepository;
-import com.phenikaa.thesisservice.repository.LecturerCapacityRepository;
 import com.phenikaa.thesisservice.repository.SuggestRepository;
+import com.phenikaa.thesisservice.service.interfaces.ActivityRollupService;
+import com.phenikaa.thesisservice.service.interfaces.ActivityRollupService.ActivityType;
+import com.phenikaa.thesisservice.service.interfaces.LecturerCapacityService;
 import com.phenikaa.thesisservice.service.interfaces.RegisterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
@@ -34,10 +38,12 @@ public class RegisterServiceImpl implements RegisterService {
     private final RegisterRepository registerRepository;
     private final ProjectTopicRepository projectTopicRepository;
     private final RegistrationPeriodRepository registrationPeriodRepository;
-    private final LecturerCapacityRepository lecturerCapacityRepository;
+    private final LecturerCapacityService lecturerCapacityService;
     private final SuggestRepository suggestRepository;
+    private final ActivityRollupService activityRollupService;
 
     @Override
+    @Transactional
     public void registerTopic(RegisterTopicRequest dto, Integer userId) {
         // Bắt buộc chỉ định registrationPeriodId khi có nhiều đợt song song
         if (dto.getRegistrationPeriodId() == null) {
@@ -69,11 +75,12 @@ public class RegisterServiceImpl implements RegisterService {
         ProjectTopic topic = projectTopicRepository.findById(dto.getTopicId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Topic not found!"));
 
-        // Kiểm tra sức chứa của giảng viên trong đợt đăng ký này
-        if (!canLecturerAcceptMoreStudents(topic.getSupervisorId(), period.getPeriodId())) {
+        // Từ chối nhanh nếu giảng viên vừa được ghi nhận là hết slot
+        if (lecturerCapacityService.isKnownFull(topic.getSupervisorId(), period.getPeriodId())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
                 "Giảng viên đã đạt giới hạn số lượng sinh viên trong đợt đăng ký này!");
         }
+        lecturerCapacityService.ensureCapacity(topic.getSupervisorId(), period.getPeriodId());
 
         Register register = registerMapper.toRegister(dto);
         register.setProjectTopic(topic);
@@ -87,8 +94,20 @@ public class RegisterServiceImpl implements RegisterService {
         topic.setApprovalStatus(ProjectTopic.ApprovalStatus.PENDING);
         projectTopicRepository.save(topic);
 
-        // Cập nhật sức chứa của giảng viên
-        updateLecturerCapacity(topic.getSupervisorId(), period.getPeriodId(), true);
+        // Giữ slot của giảng viên bằng một câu UPDATE có điều kiện, đặt cuối transaction để giữ row lock ngắn nhất.
+        // Hết slot thì rollback toàn bộ đăng ký ở trên
+        if (!lecturerCapacityService.tryReserve(topic.getSupervisorId(), period.getPeriodId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, 
+                "Giảng viên đã đạt giới hạn số lượng sinh viên trong đợt đăng ký này!");
+        }
+
+        // Cập nhật rollup theo ngày sau khi commit thành công
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                activityRollupService.record(ActivityType.REGISTRATION, register.getRegisterId(), register.getRegisteredAt(), register.getRegistrationPeriodId());
+            }
+        });
     }
 
     private boolean hasStudentRegisteredInPeriod(Integer studentId, Integer periodId) {
@@ -99,69 +118,6 @@ public class RegisterServiceImpl implements RegisterService {
         return suggestRepository.existsBySuggestedByAndRegistrationPeriodId(studentId, periodId);
     }
 
-    private boolean canLecturerAcceptMoreStudents(Integer lecturerId, Integer periodId) {
-        // Tìm capacity hiện tại
-        LecturerCapacity capacity = lecturerCapacityRepository
-                .findByLecturerIdAndRegistrationPeriodId(lecturerId, periodId)
-                .orElse(null);
-        
-        // Nếu không có capacity, tạo mới với giá trị từ period
-        if (capacity == null) {
-            // Lấy thông tin period để biết maxStudentsPerLecturer
-            RegistrationPeriod period = registrationPeriodRepository.findById(periodId)
-                    .orElseThrow(() -> new RuntimeException("Period not found with id: " + periodId));
-            
-            capacity = LecturerCapacity.builder()
-                    .lecturerId(lecturerId)
-                    .registrationPeriodId(periodId)
-                    .maxStudents(period.getMaxStudentsPerLecturer()) // Lấy từ period
-                    .currentStudents(0)
-                    .build();
-            
-            // Lưu capacity mới
-            lecturerCapacityRepository.save(capacity);
-            System.out.println("Đã tạo LecturerCapacity mới cho lecturer " + lecturerId + " trong period " + periodId + " với maxStudents=" + period.getMaxStudentsPerLecturer()); // Debug log
-        }
-        
-        System.out.println("Kiểm tra capacity: " + capacity); // Debug log
-        // Kiểm tra xem còn slot trống không (maxStudents > 0)
-        boolean canAccept = capacity.getMaxStudents() > 0;
-        System.out.println("Có thể nhận thêm sinh viên: " + canAccept + " (maxStudents=" + capacity.getMaxStudents() + ")"); // Debug log
-        
-        return canAccept;
-    }
-
-    private void updateLecturerCapacity(Integer lecturerId, Integer periodId, boolean decrease) {
-        LecturerCapacity capacity = lecturerCapacityRepository
-                .findByLecturerIdAndRegistrationPeriodId(lecturerId, periodId)
-                .orElseGet(() -> {
-                    // Lấy thông tin period để biết maxStudentsPerLecturer
-                    RegistrationPeriod period = registrationPeriodRepository.findById(periodId)
-                            .orElseThrow(() -> new RuntimeException("Period not found with id: " + periodId));
-                    
-                    return LecturerCapacity.builder()
-                            .lecturerId(lecturerId)
-                            .registrationPeriodId(periodId)
-                            .maxStudents(period.getMaxStudentsPerLecturer()) // Lấy từ period
-                            .currentStudents(0)
-                            .build();
-                });
-
-        if (decrease) {
-            // Giảm maxStudents khi sinh viên đăng ký thành công
-            if (capacity.getMaxStudents() > 0) {
-                capacity.setMaxStudents(capacity.getMaxStudents() - 1);
-                System.out.println("Đã giảm maxStudents cho lecturer " + lecturerId + " trong period " + periodId + ". Còn lại: " + capacity.getMaxStudents());
-            }
-        } else {
-            // Tăng maxStudents khi giảng viên từ chối (hoàn trả slot)
-            capacity.setMaxStudents(capacity.getMaxStudents() + 1);
-            System.out.println("Đã tăng maxStudents cho lecturer " + lecturerId + " trong period " + periodId + ". Hiện tại: " + capacity.getMaxStudents());
-        }
-
-        lecturerCapacityRepository.save(capacity);
-    }
-
     // Statistics methods implementation
     @Override
     public Long getRegistrationCount() {
@@ -203,21 +159,17 @@ public class RegisterServiceImpl implements RegisterService {
 
     @Override
     public List<Map<String, Object>> getRegistrationsOverTime(String startDate, String endDate) {
-        // TODO: Implement registrations over time with date filtering
-        List<Register> registrations = registerRepository.findAll();
-        return registrations.stream()
-                .collect(Collectors.groupingBy(
-                        registration -> registration.getRegisteredAt().atZone(java.time.ZoneId.systemDefault()).toLocalDate().toString(),
-                        Collectors.counting()
-                ))
+        // Đọc từ rollup theo ngày, không load toàn bộ bảng register
+        LocalDate from = startDate != null && !startDate.isBlank() ? LocalDate.parse(startDate) : LocalDate.MIN;
+        LocalDate to = endDate != null && !endDate.isBlank() ? LocalDate.parse(endDate) : LocalDate.MAX;
+        return activityRollupService.getDailyCounts(ActivityType.REGISTRATION, from, to, null)
                 .entrySet().stream()
                 .map(entry -> {
                     Map<String, Object> timeData = new HashMap<>();
-                    timeData.put("date", entry.getKey());
+                    timeData.put("date", entry.getKey().toString());
                     timeData.put("count", entry.getValue());
                     return timeData;
                 })
-                .sorted((a, b) -> a.get("date").toString().compareTo(b.get("date").toString()))
                 .collect(Collectors.toList());
     }
     
@@ -1,6 +1,7 @@
 package com.phenikaa.thesisservice.service.implement;
 
 import com.phenikaa.dto.response.GetUserResponse;
+import com.phenikaa.thesisservice.cache.UserDirectoryCache;
 import com.phenikaa.thesisservice.client.UserServiceClient;
 import com.phenikaa.thesisservice.dto.response.GetStudentPeriodResponse;
 import com.phenikaa.thesisservice.entity.Register;
@@ -12,7 +13,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,44 +27,59 @@ public class StudentPeriodServiceImpl implements StudentPeriodService {
     private final RegisterRepository registerRepository;
     private final SuggestRepository suggestRepository;
     private final UserServiceClient userServiceClient;
+    private final UserDirectoryCache userDirectoryCache;
 
     @Override
     public List<GetStudentPeriodResponse> getStudentsByPeriod(Integer periodId) {
         log.info("Lấy danh sách sinh viên đã đăng ký đề tài theo đợt: {}", periodId);
-        
-        List<Register> registrations = registerRepository.findByRegistrationPeriodId(periodId);
-        
+
+        List<Register> registrations = registerRepository.findWithProjectTopicByRegistrationPeriodId(periodId);
+        Map<Integer, GetUserResponse> users = userDirectoryCache.resolveAll(collectUserIds(registrations, List.of()));
+
         return registrations.stream()
-                .map(this::mapRegisterToResponse)
+                .map(register -> mapRegisterToResponse(register, users))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<GetStudentPeriodResponse> getSuggestedStudentsByPeriod(Integer periodId) {
         log.info("Lấy danh sách sinh viên đã đề xuất đề tài theo đợt: {}", periodId);
-        
-        List<SuggestedTopic> suggestedTopics = suggestRepository.findByRegistrationPeriodId(periodId);
-        
+
+        List<SuggestedTopic> suggestedTopics = suggestRepository.findWithProjectTopicByRegistrationPeriodId(periodId);
+        Map<Integer, GetUserResponse> users = userDirectoryCache.resolveAll(collectUserIds(List.of(), suggestedTopics));
+
         return suggestedTopics.stream()
-                .map(this::mapSuggestedTopicToResponse)
+                .map(suggestedTopic -> mapSuggestedTopicToResponse(suggestedTopic, users))
                 .collect(Collectors.toList());
     }
 
     @Override
     public List<GetStudentPeriodResponse> getAllStudentsByPeriod(Integer periodId) {
         log.info("Lấy danh sách tất cả sinh viên theo đợt: {}", periodId);
-        
-        List<GetStudentPeriodResponse> registeredStudents = getStudentsByPeriod(periodId);
-        List<GetStudentPeriodResponse> suggestedStudents = getSuggestedStudentsByPeriod(periodId);
-        
+
+        List<Register> registrations = registerRepository.findWithProjectTopicByRegistrationPeriodId(periodId);
+        List<SuggestedTopic> suggestedTopics = suggestRepository.findWithProjectTopicByRegistrationPeriodId(periodId);
+
+        // Resolve toàn bộ sinh viên và giảng viên của cả hai danh sách trong một lần
+        Map<Integer, GetUserResponse> users = userDirectoryCache.resolveAll(collectUserIds(registrations, suggestedTopics));
+
+        List<GetStudentPeriodResponse> registeredStudents = registrations.stream()
+                .map(register -> mapRegisterToResponse(register, users))
+                .collect(Collectors.toList());
+        List<GetStudentPeriodResponse> suggestedStudents = suggestedTopics.stream()
+                .map(suggestedTopic -> mapSuggestedTopicToResponse(suggestedTopic, users))
+                .toList();
+
+        int registeredCount = registeredStudents.size();
+
         // Kết hợp cả hai danh sách
         registeredStudents.addAll(suggestedStudents);
-        
-        log.info("Tổng số sinh viên tìm thấy: {} (đăng ký: {}, đề xuất: {})", 
-                registeredStudents.size(), 
-                getStudentsByPeriod(periodId).size(), 
+
+        log.info("Tổng số sinh viên tìm thấy: {} (đăng ký: {}, đề xuất: {})",
+                registeredStudents.size(),
+                registeredCount,
                 suggestedStudents.size());
-        
+
         return registeredStudents;
     }
 
@@ -70,11 +89,11 @@ public class StudentPeriodServiceImpl implements StudentPeriodService {
 
         // 1) Lấy tất cả sinh viên thuộc đợt từ user-service (đã import vào đợt)
         var usersInPeriod = userServiceClient.getStudentsByPeriod(periodId);
-        var allStudentIds = new java.util.HashSet<Integer>();
+        var allStudents = new java.util.LinkedHashMap<Integer, Map<String, Object>>();
         if (usersInPeriod != null && usersInPeriod.getData() != null) {
             for (var map : usersInPeriod.getData()) {
                 Object idObj = map.get("userId");
-                if (idObj instanceof Number) allStudentIds.add(((Number) idObj).intValue());
+                if (idObj instanceof Number) allStudents.put(((Number) idObj).intValue(), map);
             }
         }
 
@@ -83,17 +102,27 @@ public class StudentPeriodServiceImpl implements StudentPeriodService {
         registerRepository.findByRegistrationPeriodId(periodId).forEach(r -> completed.add(r.getStudentId()));
         suggestRepository.findByRegistrationPeriodId(periodId).forEach(s -> completed.add(s.getSuggestedBy()));
 
-        // 3) Lọc ra những sinh viên thuộc đợt nhưng chưa có trong completed
+        // 3) Lọc ra những sinh viên thuộc đợt nhưng chưa có trong completed.
+        //    Danh sách theo đợt đã có sẵn username/fullName nên chỉ resolve thêm những sinh viên bị thiếu thông tin
+        var missingInfo = allStudents.entrySet().stream()
+                .filter(entry -> !completed.contains(entry.getKey()))
+                .filter(entry -> entry.getValue().get("username") == null || entry.getValue().get("fullName") == null)
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<Integer, GetUserResponse> users = userDirectoryCache.resolveAll(missingInfo);
+
         var result = new java.util.ArrayList<GetStudentPeriodResponse>();
-        for (Integer studentId : allStudentIds) {
+        for (var entry : allStudents.entrySet()) {
+            Integer studentId = entry.getKey();
             if (!completed.contains(studentId)) {
-                String username = getUsernameById(studentId);
-                String fullName = getFullNameById(studentId);
+                GetUserResponse user = users.get(studentId);
+                String username = stringValue(entry.getValue().get("username"));
+                String fullName = stringValue(entry.getValue().get("fullName"));
                 result.add(GetStudentPeriodResponse.builder()
                         .registrationPeriodId(periodId)
                         .studentId(studentId)
-                        .username(username)
-                        .fullName(fullName)
+                        .username(username != null ? username : usernameOf(user))
+                        .fullName(fullName != null ? fullName : fullNameOf(user))
                         .registrationType("UNCOMPLETED")
                         .topicId(null)
                         .topicTitle(null)
@@ -106,20 +135,38 @@ public class StudentPeriodServiceImpl implements StudentPeriodService {
         return result;
     }
 
+    /**
+     * Gom id sinh viên và giảng viên hướng dẫn để resolve bằng một lần gọi batch
+     */
+    private Set<Integer> collectUserIds(List<Register> registrations, List<SuggestedTopic> suggestedTopics) {
+        Set<Integer> userIds = new HashSet<>();
+        for (Register register : registrations) {
+            userIds.add(register.getStudentId());
+            if (register.getProjectTopic() != null) {
+                userIds.add(register.getProjectTopic().getSupervisorId());
+            }
+        }
+        for (SuggestedTopic suggestedTopic : suggestedTopics) {
+            userIds.add(suggestedTopic.getSuggestedBy());
+            userIds.add(suggestedTopic.getSuggestedFor());
+        }
+        userIds.remove(null);
+        return userIds;
+    }
+
     /**
      * Map Register entity sang GetStudentPeriodResponse
      */
-    private GetStudentPeriodResponse mapRegisterToResponse(Register register) {
-        String username = getUsernameById(register.getStudentId());
-        String fullName = getFullNameById(register.getStudentId());
+    private GetStudentPeriodResponse mapRegisterToResponse(Register register, Map<Integer, GetUserResponse> users) {
+        GetUserResponse student = users.get(register.getStudentId());
         Integer supervisorId = register.getProjectTopic() != null ? register.getProjectTopic().getSupervisorId() : null;
-        String supervisorFullName = supervisorId != null ? getFullNameById(supervisorId) : null;
-        
+        String supervisorFullName = supervisorId != null ? fullNameOf(users.get(supervisorId)) : null;
+
         return GetStudentPeriodResponse.builder()
                 .registrationPeriodId(register.getRegistrationPeriodId())
                 .studentId(register.getStudentId())
-                .username(username)
-                .fullName(fullName)
+                .username(usernameOf(student))
+                .fullName(fullNameOf(student))
                 .supervisorId(supervisorId)
                 .supervisorFullName(supervisorFullName)
                 .suggestionStatus(null) // Register không có suggestion status
@@ -133,17 +180,16 @@ public class StudentPeriodServiceImpl implements StudentPeriodService {
     /**
      * Map SuggestedTopic entity sang GetStudentPeriodResponse
      */
-    private GetStudentPeriodResponse mapSuggestedTopicToResponse(SuggestedTopic suggestedTopic) {
-        String username = getUsernameById(suggestedTopic.getSuggestedBy());
-        String fullName = getFullNameById(suggestedTopic.getSuggestedBy());
+    private GetStudentPeriodResponse mapSuggestedTopicToResponse(SuggestedTopic suggestedTopic, Map<Integer, GetUserResponse> users) {
+        GetUserResponse student = users.get(suggestedTopic.getSuggestedBy());
         Integer supervisorId = suggestedTopic.getSuggestedFor();
-        String supervisorFullName = supervisorId != null ? getFullNameById(supervisorId) : null;
-        
+        String supervisorFullName = supervisorId != null ? fullNameOf(users.get(supervisorId)) : null;
+
         return GetStudentPeriodResponse.builder()
                 .registrationPeriodId(suggestedTopic.getRegistrationPeriodId())
                 .studentId(suggestedTopic.getSuggestedBy())
-                .username(username)
-                .fullName(fullName)
+                .username(usernameOf(student))
+                .fullName(fullNameOf(student))
                 .supervisorId(supervisorId)
                 .supervisorFullName(supervisorFullName)
                 .suggestionStatus(suggestedTopic.getSuggestionStatus())
@@ -154,61 +200,21 @@ public class StudentPeriodServiceImpl implements StudentPeriodService {
                 .build();
     }
 
-    /**
-     * Lấy username từ user-service
-     */
-    private String getUsernameById(Integer userId) {
-        try {
-            log.debug("Đang lấy username cho userId: {}", userId);
-            
-            // Thử endpoint get-profile trước
-            try {
-                GetUserResponse user = userServiceClient.getUserById(userId);
-                if (user != null && user.getUsername() != null) {
-                    log.debug("Tìm thấy user: {} với username: {}", user.getUserId(), user.getUsername());
-                    return user.getUsername();
-                }
-            } catch (Exception e) {
-                log.warn("Endpoint get-profile thất bại cho userId {}: {}", userId, e.getMessage());
-            }
-            
-            // Fallback: thử endpoint get-username
-            try {
-                String username = userServiceClient.getUsernameById(userId);
-                if (username != null && !username.isEmpty()) {
-                    log.debug("Tìm thấy username qua endpoint get-username: {}", username);
-                    return username;
-                }
-            } catch (Exception e) {
-                log.warn("Endpoint get-username thất bại cho userId {}: {}", userId, e.getMessage());
-            }
-            
-            log.warn("Không thể lấy username cho userId: {}", userId);
-            return null;
-        } catch (Exception e) {
-            log.error("Lỗi khi lấy username cho userId {}: {}", userId, e.getMessage(), e);
+    private String usernameOf(GetUserResponse user) {
+        if (user == null || user.getUsername() == null || user.getUsername().isEmpty()) {
             return null;
         }
+        return user.getUsername();
     }
 
-    /**
-     * Lấy fullName từ user-service
-     */
-    private String getFullNameById(Integer userId) {
-        try {
-            log.debug("Đang lấy fullName cho userId: {}", userId);
-            
-            GetUserResponse user = userServiceClient.getUserById(userId);
-            if (user != null && user.getFullName() != null && !user.getFullName().trim().isEmpty()) {
-                log.debug("Tìm thấy fullName: {}", user.getFullName());
-                return user.getFullName();
-            }
-            
-            log.warn("Không thể lấy fullName cho userId: {}", userId);
-            return null;
-        } catch (Exception e) {
-            log.error("Lỗi khi lấy fullName cho userId {}: {}", userId, e.getMessage(), e);
+    private String fullNameOf(GetUserResponse user) {
+        if (user == null || user.getFullName() == null || user.getFullName().trim().isEmpty()) {
             return null;
         }
+        return user.getFullName();
+    }
+
+    private String stringValue(Object value) {
+        return value != null ? value.toString() : null;
     }
 }
@@ -8,13 +8,14 @@ import com.phenikaa.thesisservice.dto.response.GetThesisResponse;
 import com.phenikaa.thesisservice.entity.ProjectTopic;
 import com.phenikaa.thesisservice.entity.SuggestedTopic;
 import com.phenikaa.thesisservice.entity.RegistrationPeriod;
-import com.phenikaa.thesisservice.entity.LecturerCapacity;
 import com.phenikaa.thesisservice.mapper.SuggestTopicMapper;
 import com.phenikaa.thesisservice.repository.ProjectTopicRepository;
 import com.phenikaa.thesisservice.repository.SuggestRepository;
 import com.phenikaa.thesisservice.repository.RegistrationPeriodRepository;
-import com.phenikaa.thesisservice.repository.LecturerCapacityRepository;
 import com.phenikaa.thesisservice.repository.RegisterRepository;
+import com.phenikaa.thesisservice.service.interfaces.ActivityRollupService;
+import com.phenikaa.thesisservice.service.interfaces.ActivityRollupService.ActivityType;
+import com.phenikaa.thesisservice.service.interfaces.LecturerCapacityService;
 import com.phenikaa.thesisservice.service.interfaces.SuggestService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -23,6 +24,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -37,10 +41,12 @@ public class SuggestServiceImpl implements SuggestService {
     private final SuggestRepository suggestRepository;
     private final NotificationServiceClient notificationServiceClient;
     private final RegistrationPeriodRepository registrationPeriodRepository;
-    private final LecturerCapacityRepository lecturerCapacityRepository;
+    private final LecturerCapacityService lecturerCapacityService;
     private final RegisterRepository registerRepository;
+    private final ActivityRollupService activityRollupService;
 
     @Override
+    @Transactional
     public void suggestTopic(SuggestTopicRequest dto, Integer studentId) {
         if (dto.getRegistrationPeriodId() == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Thiếu registrationPeriodId");
@@ -68,11 +74,12 @@ public class SuggestServiceImpl implements SuggestService {
                 "Bạn đã đăng ký đề tài trong đợt này rồi! Không thể đề xuất đề tài khác.");
         }
 
-        // Kiểm tra sức chứa của giảng viên trong đợt đăng ký này
-        if (!canLecturerAcceptMoreStudents(dto.getSupervisorId(), activePeriod.getPeriodId())) {
+        // Từ chối nhanh nếu giảng viên vừa được ghi nhận là hết slot
+        if (lecturerCapacityService.isKnownFull(dto.getSupervisorId(), activePeriod.getPeriodId())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                 "Giảng viên đã đạt giới hạn số lượng sinh viên trong đợt đăng ký này!");
         }
+        lecturerCapacityService.ensureCapacity(dto.getSupervisorId(), activePeriod.getPeriodId());
 
         ProjectTopic topic = suggestTopicMapper.toProjectTopic(dto);
         topic.setCreatedBy(studentId);
@@ -90,19 +97,10 @@ public class SuggestServiceImpl implements SuggestService {
                 .build();
         suggestRepository.save(suggested);
 
-        // Cập nhật sức chứa của giảng viên - giảm maxStudents
-        System.out.println("=== TRƯỚC KHI GIẢM maxStudents ===");
-        System.out.println("Lecturer ID: " + dto.getSupervisorId());
-        System.out.println("Period ID: " + activePeriod.getPeriodId());
-
-        updateLecturerCapacity(dto.getSupervisorId(), activePeriod.getPeriodId(), true);
-
-        // Kiểm tra sau khi giảm
-        LecturerCapacity afterCapacity = lecturerCapacityRepository
-                .findByLecturerIdAndRegistrationPeriodId(dto.getSupervisorId(), activePeriod.getPeriodId())
-                .orElse(null);
-        if (afterCapacity != null) {
-            System.out.println("Capacity sau khi giảm: maxStudents=" + afterCapacity.getMaxStudents() + ", currentStudents=" + afterCapacity.getCurrentStudents());
+        // Giữ slot của giảng viên bằng một câu UPDATE có điều kiện; hết slot thì rollback đề xuất ở trên
+        if (!lecturerCapacityService.tryReserve(dto.getSupervisorId(), activePeriod.getPeriodId())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Giảng viên đã đạt giới hạn số lượng sinh viên trong đợt đăng ký này!");
         }
 
         NotificationRequest noti = new NotificationRequest(
@@ -110,7 +108,14 @@ public class SuggestServiceImpl implements SuggestService {
                 dto.getSupervisorId(),
                 "Bạn có một đề tài mới cần duyệt!"
         );
-        notificationServiceClient.sendNotification(noti);
+        // Gửi thông báo và cập nhật rollup sau khi commit để không giữ row lock của capacity trong lúc gọi HTTP
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                activityRollupService.record(ActivityType.SUGGESTION, suggested.getSuggestedId(), suggested.getCreatedAt(), suggested.getRegistrationPeriodId());
+                notificationServiceClient.sendNotification(noti);
+            }
+        });
     }
 
     private boolean hasStudentSuggestedInPeriod(Integer studentId, Integer periodId) {
@@ -121,68 +126,6 @@ public class SuggestServiceImpl implements SuggestService {
         return registerRepository.existsByStudentIdAndRegistrationPeriodId(studentId, periodId);
     }
 
-    private boolean canLecturerAcceptMoreStudents(Integer lecturerId, Integer periodId) {
-        // Tìm capacity hiện tại
-        LecturerCapacity capacity = lecturerCapacityRepository
-                .findByLecturerIdAndRegistrationPeriodId(lecturerId, periodId)
-                .orElse(null);
-
-        // Nếu không có capacity, tạo mới với giá trị từ period
-        if (capacity == null) {
-            // Lấy thông tin period để biết maxStudentsPerLecturer
-            RegistrationPeriod period = registrationPeriodRepository.findById(periodId)
-                    .orElseThrow(() -> new RuntimeException("Period not found with id: " + periodId));
-
-            capacity = LecturerCapacity.builder()
-                    .lecturerId(lecturerId)
-                    .registrationPeriodId(periodId)
-                    .maxStudents(period.getMaxStudentsPerLecturer())
-                    .currentStudents(0)
-                    .build();
-
-            // Lưu capacity mới
-            lecturerCapacityRepository.save(capacity);
-            System.out.println("Đã tạo LecturerCapacity mới cho lecturer " + lecturerId + " trong period " + periodId + " với maxStudents=" + period.getMaxStudentsPerLecturer()); // Debug log
-        }
-
-        System.out.println("Kiểm tra capacity: " + capacity); // Debug log
-        // Kiểm tra xem còn slot trống không (maxStudents > 0)
-        boolean canAccept = capacity.getMaxStudents() > 0;
-        System.out.println("Có thể nhận thêm sinh viên: " + canAccept + " (maxStudents=" + capacity.getMaxStudents() + ")"); // Debug log
-
-        return canAccept;
-    }
-
-    private void updateLecturerCapacity(Integer lecturerId, Integer periodId, boolean decrease) {
-        LecturerCapacity capacity = lecturerCapacityRepository
-                .findByLecturerIdAndRegistrationPeriodId(lecturerId, periodId)
-                .orElseGet(() -> {
-                    RegistrationPeriod period = registrationPeriodRepository.findById(periodId)
-                            .orElseThrow(() -> new RuntimeException("Period not found with id: " + periodId));
-
-                    return LecturerCapacity.builder()
-                            .lecturerId(lecturerId)
-                            .registrationPeriodId(periodId)
-                            .maxStudents(period.getMaxStudentsPerLecturer())
-                            .currentStudents(0)
-                            .build();
-                });
-
-        if (decrease) {
-            // Giảm maxStudents khi sinh viên đăng ký/đề xuất thành công
-            if (capacity.getMaxStudents() > 0) {
-                capacity.setMaxStudents(capacity.getMaxStudents() - 1);
-                System.out.println("Đã giảm maxStudents cho lecturer " + lecturerId + " trong period " + periodId + ". Còn lại: " + capacity.getMaxStudents());
-            }
-        } else {
-            // Tăng maxStudents khi giảng viên từ chối (hoàn trả slot)
-            capacity.setMaxStudents(capacity.getMaxStudents() + 1);
-            System.out.println("Đã tăng maxStudents cho lecturer " + lecturerId + " trong period " + periodId + ". Hiện tại: " + capacity.getMaxStudents());
-        }
-
-        lecturerCapacityRepository.save(capacity);
-    }
-
     @Override
     public Page<GetSuggestTopicResponse> getSuggestTopicByStudentId(Integer studentId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
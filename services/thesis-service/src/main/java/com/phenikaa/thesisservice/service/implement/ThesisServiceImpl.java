@@ -1,7 +1,7 @@
 package com.phenikaa.thesisservice.service.implement;
 
 import com.phenikaa.thesisservice.client.NotificationServiceClient;
-import com.phenikaa.thesisservice.client.ProfileServiceClient;
+import com.phenikaa.thesisservice.cache.LecturerNameCache;
 import com.phenikaa.thesisservice.dto.request.CreateProjectTopicRequest;
 import com.phenikaa.thesisservice.dto.request.EditProjectTopicRequest;
 import com.phenikaa.thesisservice.dto.request.NotificationRequest;
@@ -12,15 +12,16 @@ import com.phenikaa.thesisservice.dto.response.AvailableTopicResponse;
 import com.phenikaa.thesisservice.dto.response.GetThesisResponse;
 import com.phenikaa.thesisservice.entity.Register;
 import com.phenikaa.thesisservice.entity.SuggestedTopic;
-import com.phenikaa.thesisservice.entity.LecturerCapacity;
 import com.phenikaa.thesisservice.mapper.ProjectTopicMapper;
 import com.phenikaa.thesisservice.repository.ProjectTopicRepository;
-import com.phenikaa.thesisservice.repository.LecturerCapacityRepository;
 import com.phenikaa.thesisservice.entity.ProjectTopic;
 import com.phenikaa.thesisservice.projection.ProjectTopicSummary;
 import com.phenikaa.thesisservice.dto.response.ProjectTopicSummaryDto;
+import com.phenikaa.thesisservice.service.interfaces.LecturerCapacityService;
 import com.phenikaa.thesisservice.service.interfaces.ThesisService;
 import com.phenikaa.thesisservice.specification.ThesisSpecification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
@@ -33,6 +34,7 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
 
 @Service
 @RequiredArgsConstructor
@@ -43,8 +45,9 @@ public class ThesisServiceImpl implements ThesisService {
     private final ProjectTopicMapper projectTopicMapper;
 
     private final NotificationServiceClient notificationServiceClient;
-    private final ProfileServiceClient profileServiceClient;
-    private final LecturerCapacityRepository lecturerCapacityRepository;
+    private final LecturerNameCache lecturerNameCache;
+    private final MeterRegistry meterRegistry;
+    private final LecturerCapacityService lecturerCapacityService;
 
     @Override
     public ProjectTopic createProjectTopic(CreateProjectTopicRequest dto, Integer userId) {
@@ -288,16 +291,7 @@ public class ThesisServiceImpl implements ThesisService {
         
         // HOÀN TRẢ slot khi từ chối đề tài: tăng maxStudents (hoàn trả slot)
         if (registrationPeriodId != null) {
-            LecturerCapacity currentCapacity = lecturerCapacityRepository
-                    .findByLecturerIdAndRegistrationPeriodId(projectTopic.getSupervisorId(), registrationPeriodId)
-                    .orElse(null);
-            if (currentCapacity != null) {
-                System.out.println("Capacity trước khi hoàn trả (reject): maxStudents=" + currentCapacity.getMaxStudents() + ", currentStudents=" + currentCapacity.getCurrentStudents());
-                // Tăng maxStudents để hoàn trả slot
-                currentCapacity.setMaxStudents(currentCapacity.getMaxStudents() + 1);
-                lecturerCapacityRepository.save(currentCapacity);
-                System.out.println("Capacity sau khi hoàn trả (reject): maxStudents=" + currentCapacity.getMaxStudents() + ", currentStudents=" + currentCapacity.getCurrentStudents());
-            }
+            lecturerCapacityService.release(projectTopic.getSupervisorId(), registrationPeriodId);
         }
 
         String message = "Đề tài '" + projectTopic.getTitle() + "' đã bị từ chối!";
@@ -329,11 +323,20 @@ public class ThesisServiceImpl implements ThesisService {
             sort
         );
         
+        Timer.Sample sample = Timer.start(meterRegistry);
+
         // Thực hiện query với specification và pageable
         Page<ProjectTopic> thesisPage = projectTopicRepository.findAll(spec, pageable);
-        
+
+        // Resolve supervisorName của cả trang bằng một lần gọi batch để FE hiển thị ngay không bị nháy
+        Map<Integer, String> supervisorNames = lecturerNameCache.resolveAll(
+                thesisPage.getContent().stream()
+                        .map(ProjectTopic::getSupervisorId)
+                        .collect(Collectors.toSet())
+        );
+
         // Map kết quả sang DTO
-        return thesisPage.map(projectTopic -> {
+        Page<GetThesisResponse> result = thesisPage.map(projectTopic -> {
             GetThesisResponse dto = projectTopicMapper.toResponse(projectTopic);
             
             // Set thêm thông tin suggestedBy và registerId nếu có
@@ -354,19 +357,15 @@ public class ThesisServiceImpl implements ThesisService {
                 dto.setRegisteredBy(register.getStudentId());
             }
 
-            // Bổ sung supervisorName để FE hiển thị ngay không bị nháy
-            try {
-                if (projectTopic.getSupervisorId() != null) {
-                    java.util.Map<String, Object> profile = profileServiceClient.getLecturerById(projectTopic.getSupervisorId());
-                    Object fullName = profile != null ? profile.get("fullName") : null;
-                    if (fullName != null) {
-                        dto.setSupervisorName(fullName.toString());
-                    }
-                }
-            } catch (Exception ignored) {}
+            if (projectTopic.getSupervisorId() != null) {
+                dto.setSupervisorName(supervisorNames.get(projectTopic.getSupervisorId()));
+            }
             
             return dto;
         });
+
+        sample.stop(meterRegistry.timer("thesis.filter.page.latency"));
+        return result;
     }
 
     @Override
@@ -611,7 +610,20 @@ public class ThesisServiceImpl implements ThesisService {
     public Map<String, Object> getTopicById(Integer topicId) {
         ProjectTopic projectTopic = projectTopicRepository.findById(topicId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project topic not found!"));
-        
+        return toTopicInfo(projectTopic);
+    }
+
+    @Override
+    public List<Map<String, Object>> getTopicsByIds(List<Integer> topicIds) {
+        if (topicIds == null || topicIds.isEmpty()) {
+            return List.of();
+        }
+        return projectTopicRepository.findAllById(new HashSet<>(topicIds)).stream()
+                .map(this::toTopicInfo)
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, Object> toTopicInfo(ProjectTopic projectTopic) {
         Map<String, Object> topicInfo = new HashMap<>();
         topicInfo.put("topicId", projectTopic.getTopicId());
         topicInfo.put("title", projectTopic.getTitle());
@@ -0,0 +1,34 @@
+package com.phenikaa.thesisservice.service.interfaces;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.SortedMap;
+
+public interface ActivityRollupService {
+
+    enum ActivityType {
+        REGISTRATION,
+        SUGGESTION
+    }
+
+    /**
+     * Ghi nhận một đăng ký/đề xuất mới (id của bản ghi) vào bucket của ngày tương ứng
+     */
+    void record(ActivityType type, Integer id, Instant occurredAt, Integer periodId);
+
+    /**
+     * Số lượng theo ngày trong khoảng [startDate, endDate], chỉ gồm các ngày có dữ liệu.
+     * periodId = null nghĩa là tính tất cả các đợt
+     */
+    SortedMap<LocalDate, Long> getDailyCounts(ActivityType type, LocalDate startDate, LocalDate endDate, Integer periodId);
+
+    /**
+     * Dựng lại toàn bộ rollup từ DB (khi khởi động)
+     */
+    void rebuild();
+
+    /**
+     * Đối soát định kỳ: chỉ đếm lại các ngày gần đây từ DB (bản ghi của instance khác hoặc bị xóa)
+     */
+    void reconcileRecent();
+}
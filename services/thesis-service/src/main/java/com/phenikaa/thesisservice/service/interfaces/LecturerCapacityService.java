@@ -0,0 +1,24 @@
+package com.phenikaa.thesisservice.service.interfaces;
+
+public interface LecturerCapacityService {
+
+    /**
+     * Tạo bản ghi capacity cho giảng viên trong đợt nếu chưa có, trong transaction của bên gọi
+     */
+    void ensureCapacity(Integer lecturerId, Integer periodId);
+
+    /**
+     * Kiểm tra nhanh trong bộ nhớ: giảng viên vừa được ghi nhận là hết slot thì từ chối ngay, không chạm DB
+     */
+    boolean isKnownFull(Integer lecturerId, Integer periodId);
+
+    /**
+     * Giữ một slot bằng một câu UPDATE có điều kiện. Trả về false nếu giảng viên đã hết slot
+     */
+    boolean tryReserve(Integer lecturerId, Integer periodId);
+
+    /**
+     * Hoàn trả một slot (khi đăng ký/đề xuất bị từ chối)
+     */
+    void release(Integer lecturerId, Integer periodId);
+}
@@ -44,6 +44,7 @@ public interface ThesisService {
     boolean canTopicBeApproved(Integer topicId);
     Map<String, Object> getSupervisorCapacityInfo(Integer supervisorId);
     Map<String, Object> getTopicById(Integer topicId);
+    List<Map<String, Object>> getTopicsByIds(List<Integer> topicIds);
 
     // Statistics methods
     Long getTopicCount();